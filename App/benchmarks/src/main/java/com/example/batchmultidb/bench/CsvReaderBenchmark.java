@@ -0,0 +1,99 @@
+package com.example.batchmultidb.bench;
+
+import com.example.batchmultidb.batch.LocalCsvCustomerItemReader;
+import com.example.batchmultidb.domain.Customer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rows/sec of the CSV reader, compared with the original line/split/trim parsing.
+ * Run with {@code -prof gc} to see the allocation rate per row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CsvReaderBenchmark {
+
+    static final int ROWS = 200_000;
+
+    private Path csv;
+
+    @Setup(Level.Trial)
+    public void writeCsv() throws IOException {
+        csv = CustomerCsvFixtures.write(ROWS);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteCsv() throws IOException {
+        Files.deleteIfExists(csv);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void tokenizerReader(Blackhole blackhole) throws Exception {
+        LocalCsvCustomerItemReader reader = new LocalCsvCustomerItemReader(new FileSystemResource(csv));
+        reader.open(new ExecutionContext());
+        try {
+            Customer customer;
+            while ((customer = reader.read()) != null) {
+                blackhole.consume(customer);
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * The parsing the readers used before the tokenizer: one String per line,
+     * toLowerCase for the header check, then split and trim on every field.
+     */
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void lineSplitBaseline(Blackhole blackhole) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+            Iterator<String> lines = reader.lines().iterator();
+            boolean headerSkipped = false;
+            while (lines.hasNext()) {
+                String line = lines.next();
+                if (!headerSkipped && line.toLowerCase().startsWith("firstname")) {
+                    headerSkipped = true;
+                    continue;
+                }
+                String[] parts = line.split(",");
+                if (parts.length < 3) {
+                    continue;
+                }
+                blackhole.consume(Customer.builder()
+                        .firstName(parts[0].trim())
+                        .lastName(parts[1].trim())
+                        .email(parts[2].trim())
+                        .build());
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.batchmultidb.bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+final class CustomerCsvFixtures {
+
+    private CustomerCsvFixtures() {
+    }
+
+    /**
+     * Writes a customer CSV with a header and {@code rows} unique customers to a temp file.
+     */
+    static Path write(int rows) throws IOException {
+        Path csv = Files.createTempFile("customers-bench", ".csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+            writer.write("firstName,lastName,email\n");
+            for (int i = 0; i < rows; i++) {
+                writer.write("first" + i + ",LAST" + i + ",customer" + i + "@example.com\n");
+            }
+        }
+        return csv;
+    }
+}
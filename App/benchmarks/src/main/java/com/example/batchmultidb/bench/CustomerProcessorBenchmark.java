@@ -0,0 +1,78 @@
+package com.example.batchmultidb.bench;
+
+import com.example.batchmultidb.batch.CustomerItemProcessor;
+import com.example.batchmultidb.batch.EmailFingerprintSet;
+import com.example.batchmultidb.domain.Customer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rows/sec of the processing stage: {@link CustomerItemProcessor} name capitalization
+ * and the duplicate-email check of the dedupe filter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CustomerProcessorBenchmark {
+
+    static final int ROWS = 10_000;
+
+    private final CustomerItemProcessor processor = new CustomerItemProcessor();
+    private String[][] names;
+    private Customer[] customers;
+    private EmailFingerprintSet emails;
+
+    @Setup(Level.Trial)
+    public void createCustomers() {
+        names = new String[ROWS][];
+        customers = new Customer[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            names[i] = new String[]{"fIRST" + i, "LAST" + i};
+            customers[i] = Customer.builder().email("customer" + i + "@example.com").build();
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void createEmailSet() {
+        emails = new EmailFingerprintSet(0);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void capitalize(Blackhole blackhole) {
+        for (int i = 0; i < ROWS; i++) {
+            Customer customer = customers[i];
+            // reset the raw names so every invocation does the same work
+            customer.setFirstName(names[i][0]);
+            customer.setLastName(names[i][1]);
+            blackhole.consume(processor.process(customer));
+        }
+    }
+
+    /**
+     * The first invocation of each iteration inserts every email, later ones only find repeats.
+     */
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void duplicateEmailCheck(Blackhole blackhole) {
+        for (Customer customer : customers) {
+            blackhole.consume(emails.add(customer.getEmail()));
+        }
+    }
+}
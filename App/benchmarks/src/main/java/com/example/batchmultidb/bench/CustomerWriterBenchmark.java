@@ -0,0 +1,127 @@
+package com.example.batchmultidb.bench;
+
+import com.example.batchmultidb.batch.JdbcBatchCustomerItemWriter;
+import com.example.batchmultidb.batch.LocalDbCustomerItemWriter;
+import com.example.batchmultidb.batch.MergeCustomerItemWriter;
+import com.example.batchmultidb.batch.WriteStrategy;
+import com.example.batchmultidb.datasource.SequenceIdAllocator;
+import com.example.batchmultidb.domain.Customer;
+import com.example.batchmultidb.repository.CustomerRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Each {@link WriteStrategy} writing one chunk per transaction into an in-memory H2
+ * database, with the same Hibernate settings as the application. One op is one chunk:
+ * rows/sec is {@code ops/s * chunkSize} and bytes per row {@code gc.alloc.rate.norm / chunkSize}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 10, time = 2) // H2 and Hibernate need long to reach steady state
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CustomerWriterBenchmark {
+
+    @Param({"JPA", "JDBC_BATCH", "MERGE"})
+    public WriteStrategy strategy;
+
+    @Param({"100", "1000"})
+    public int chunkSize;
+
+    private SingleConnectionDataSource dataSource;
+    private LocalContainerEntityManagerFactoryBean entityManagerFactoryBean;
+    private TransactionTemplate transactionTemplate;
+    private JdbcTemplate jdbcTemplate;
+    private ItemWriter<Customer> writer;
+    private long sequence;
+
+    @Setup(Level.Trial)
+    public void createDatabase() {
+        dataSource = new SingleConnectionDataSource("jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1", "sa", "", true);
+
+        entityManagerFactoryBean = new LocalContainerEntityManagerFactoryBean();
+        entityManagerFactoryBean.setDataSource(dataSource);
+        entityManagerFactoryBean.setPackagesToScan(Customer.class.getPackageName());
+        entityManagerFactoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        entityManagerFactoryBean.setJpaPropertyMap(Map.of(
+                "hibernate.hbm2ddl.auto", "create",
+                "hibernate.id.optimizer.pooled.preferred", "pooled-lo",
+                "hibernate.jdbc.batch_size", "100",
+                "hibernate.order_inserts", "true"));
+        entityManagerFactoryBean.afterPropertiesSet();
+        EntityManagerFactory entityManagerFactory = entityManagerFactoryBean.getObject();
+
+        transactionTemplate = new TransactionTemplate(new JpaTransactionManager(entityManagerFactory));
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        SequenceIdAllocator idAllocator =
+                new SequenceIdAllocator(jdbcTemplate, Customer.ID_SEQUENCE, Customer.ID_ALLOCATION_SIZE);
+        writer = switch (strategy) {
+            case JPA -> new LocalDbCustomerItemWriter(new JpaRepositoryFactory(
+                    SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory))
+                    .getRepository(CustomerRepository.class));
+            case JDBC_BATCH -> new JdbcBatchCustomerItemWriter(jdbcTemplate, idAllocator, "H2");
+            case MERGE -> new MergeCustomerItemWriter(jdbcTemplate, idAllocator, "H2");
+        };
+    }
+
+    @Setup(Level.Invocation)
+    public void emptyTable() {
+        // every chunk lands in an empty table, so results do not drift with the index size
+        jdbcTemplate.execute("TRUNCATE TABLE CUSTOMER");
+    }
+
+    @TearDown(Level.Trial)
+    public void dropDatabase() {
+        entityManagerFactoryBean.destroy();
+        jdbcTemplate.execute("SHUTDOWN");
+        dataSource.destroy();
+    }
+
+    @Benchmark
+    public void writeChunk() {
+        List<Customer> customers = new ArrayList<>(chunkSize);
+        for (int i = 0; i < chunkSize; i++) {
+            long n = sequence++;
+            customers.add(Customer.builder()
+                    .firstName("First" + n)
+                    .lastName("Last" + n)
+                    .email("customer" + n + "@example.com")
+                    .build());
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            try {
+                writer.write(new Chunk<>(customers));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+}
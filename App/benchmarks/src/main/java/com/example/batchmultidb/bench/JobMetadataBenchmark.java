@@ -0,0 +1,115 @@
+package com.example.batchmultidb.bench;
+
+import com.example.batchmultidb.batch.BufferedJobRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.job.builder.JobBuilder;
+import org.springframework.batch.core.launch.support.TaskExecutorJobLauncher;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.support.JobRepositoryFactoryBean;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.item.support.ListItemReader;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Job-metadata cost of one small import run with each {@code batch.job-repository.mode}: a job
+ * of one chunk-oriented step whose reader and writer do nothing, against the Spring Batch schema
+ * in a file H2 database like the application's. One op is one run, so the difference between the
+ * modes is what the metadata writes of {@code items / chunkSize} chunk commits cost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JobMetadataBenchmark {
+
+    public enum RepositoryMode { JDBC, BUFFERED }
+
+    @Param({"JDBC", "BUFFERED"})
+    public RepositoryMode mode;
+
+    @Param({"1000"})
+    public int items;
+
+    @Param({"10", "100"})
+    public int chunkSize;
+
+    private Path directory;
+    private SingleConnectionDataSource dataSource;
+    private DataSourceTransactionManager transactionManager;
+    private JobRepository jobRepository;
+    private TaskExecutorJobLauncher launcher;
+    private List<Integer> input;
+    private long run;
+
+    @Setup(Level.Trial)
+    public void createJobRepository() throws Exception {
+        directory = Files.createTempDirectory("job-metadata-bench");
+        dataSource = new SingleConnectionDataSource("jdbc:h2:file:" + directory.resolve("batch")
+                + ";MODE=Oracle", "sa", "", true);
+        new ResourceDatabasePopulator(new ClassPathResource("org/springframework/batch/core/schema-h2.sql"))
+                .execute(dataSource);
+
+        transactionManager = new DataSourceTransactionManager(dataSource);
+        JobRepositoryFactoryBean factory = new JobRepositoryFactoryBean();
+        factory.setDataSource(dataSource);
+        factory.setTransactionManager(transactionManager);
+        factory.afterPropertiesSet();
+        jobRepository = mode == RepositoryMode.BUFFERED
+                ? new BufferedJobRepository(factory.getObject(), Duration.ZERO)
+                : factory.getObject();
+        input = IntStream.range(0, items).boxed().toList();
+        launcher = new TaskExecutorJobLauncher();
+        launcher.setJobRepository(jobRepository);
+        launcher.afterPropertiesSet();
+    }
+
+    @TearDown(Level.Trial)
+    public void dropDatabase() throws Exception {
+        new JdbcTemplate(dataSource).execute("SHUTDOWN");
+        dataSource.destroy();
+        try (var files = Files.walk(directory)) {
+            files.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public JobExecution runJob() throws Exception {
+        // ListItemReader is drained by a run, so every run gets its own step
+        Job job = new JobBuilder("benchJob", jobRepository)
+                .start(new StepBuilder("benchStep", jobRepository)
+                        .<Integer, Integer>chunk(chunkSize, transactionManager)
+                        .reader(new ListItemReader<>(input))
+                        .writer(chunk -> { })
+                        .build())
+                .build();
+        return launcher.run(job, new JobParametersBuilder().addLong("run", run++).toJobParameters());
+    }
+}
@@ -2,10 +2,15 @@ package com.example.batchmultidb;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.ConfigurableApplicationContext;
 
 @SpringBootApplication
 public class BatchMultiDbApplication {
     public static void main(String[] args) {
-        SpringApplication.run(BatchMultiDbApplication.class, args);
+        ConfigurableApplicationContext context = SpringApplication.run(BatchMultiDbApplication.class, args);
+        // the cli profile runs one job (ImportJobRunner) and exits with its status
+        if (context.getEnvironment().getProperty("batch.cli.enabled", Boolean.class, false)) {
+            System.exit(SpringApplication.exit(context));
+        }
     }
 }
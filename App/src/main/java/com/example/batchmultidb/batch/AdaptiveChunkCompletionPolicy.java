@@ -0,0 +1,82 @@
+package com.example.batchmultidb.batch;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.ItemWriteListener;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.repeat.policy.SimpleCompletionPolicy;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+
+/**
+ * Chunk size that follows the measured write + commit latency. Every committed chunk
+ * updates a moving average of the time per item, and the next chunk is sized so that
+ * it should take {@code targetLatency}, moving at most 2x per chunk and staying within
+ * [minSize, maxSize].
+ * <p>
+ * Holds the state of one step execution; {@link StepExecutionChunkPolicy} creates one per execution.
+ */
+@Slf4j
+public class AdaptiveChunkCompletionPolicy extends SimpleCompletionPolicy implements ItemWriteListener<Object> {
+
+    private static final double SMOOTHING = 0.3;
+
+    private final String stepName;
+    private final int minSize;
+    private final int maxSize;
+    private final long targetNanos;
+    private final ThreadLocal<Long> writeStart = new ThreadLocal<>();
+    private double nanosPerItem = -1;
+
+    public AdaptiveChunkCompletionPolicy(String stepName, int initialSize, int minSize, int maxSize,
+                                         Duration targetLatency) {
+        super(Math.max(minSize, Math.min(maxSize, initialSize)));
+        this.stepName = stepName;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.targetNanos = targetLatency.toNanos();
+    }
+
+    @Override
+    public void beforeWrite(Chunk<?> items) {
+        writeStart.set(System.nanoTime());
+    }
+
+    @Override
+    public void afterWrite(Chunk<?> items) {
+        long start = writeStart.get();
+        int count = items.size();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            record(count, System.nanoTime() - start);
+            return;
+        }
+        // the commit is part of the cost we are tuning for, so measure once it is done
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    record(count, System.nanoTime() - start);
+                }
+            }
+        });
+    }
+
+    synchronized void record(int items, long nanos) {
+        if (items == 0) {
+            return;
+        }
+        double sample = (double) nanos / items;
+        nanosPerItem = nanosPerItem < 0 ? sample : (1 - SMOOTHING) * nanosPerItem + SMOOTHING * sample;
+
+        int current = getChunkSize();
+        long ideal = Math.round(targetNanos / Math.max(nanosPerItem, 1));
+        long next = Math.max(current / 2, Math.min((long) current * 2, ideal));
+        next = Math.max(minSize, Math.min(maxSize, next));
+        if (next != current) {
+            setChunkSize((int) next);
+            log.debug("Step {}: {} items written + committed in {} ms, chunk size {} -> {}",
+                    stepName, items, nanos / 1_000_000, current, next);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.batchmultidb.batch;
+
+import com.example.batchmultidb.datasource.DataStoreType;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersInvalidException;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.batch.core.launch.support.TaskExecutorJobLauncher;
+import org.springframework.batch.core.repository.JobExecutionAlreadyRunningException;
+import org.springframework.batch.core.repository.JobInstanceAlreadyCompleteException;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.JobRestartException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission control for imports: each {@link DataStoreType} runs at most its configured
+ * number of jobs at a time, so a burst of launches does not push the database past the
+ * concurrency it handles best. Further launches wait, in status STARTING, in a FIFO queue
+ * of {@code queueCapacity} per store; beyond that {@link TaskRejectedException} is thrown.
+ * <p>
+ * Per store it publishes the {@code batch.launch.queue.depth} and {@code batch.launch.active}
+ * gauges and the {@code batch.launch.wait} timer (time from launch to start).
+ */
+@Slf4j
+public class AdmissionControlJobLauncher implements JobLauncher, DisposableBean {
+
+    private final Map<String, DataStoreType> jobTargets;
+    private final Map<DataStoreType, ThreadPoolTaskExecutor> executors = new EnumMap<>(DataStoreType.class);
+    private final Map<DataStoreType, JobLauncher> launchers = new EnumMap<>(DataStoreType.class);
+
+    public AdmissionControlJobLauncher(JobRepository jobRepository,
+                                       Map<DataStoreType, Integer> concurrency,
+                                       int queueCapacity,
+                                       Map<String, DataStoreType> jobTargets,
+                                       MeterRegistry meterRegistry) throws Exception {
+        this.jobTargets = Map.copyOf(jobTargets);
+        for (Map.Entry<DataStoreType, Integer> limit : concurrency.entrySet()) {
+            DataStoreType store = limit.getKey();
+            Timer waitTimer = Timer.builder("batch.launch.wait")
+                    .tag("store", store.name())
+                    .description("Time import jobs waited for an admission slot")
+                    .register(meterRegistry);
+
+            ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+            executor.setCorePoolSize(limit.getValue());
+            executor.setMaxPoolSize(limit.getValue());
+            executor.setQueueCapacity(queueCapacity);
+            executor.setThreadNamePrefix("job-" + store.name().toLowerCase() + "-");
+            executor.setTaskDecorator(task -> {
+                long queuedAt = System.nanoTime();
+                return () -> {
+                    waitTimer.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+                    task.run();
+                };
+            });
+            executor.initialize();
+
+            Gauge.builder("batch.launch.queue.depth", executor, ThreadPoolTaskExecutor::getQueueSize)
+                    .tag("store", store.name())
+                    .description("Import jobs waiting for an admission slot")
+                    .register(meterRegistry);
+            Gauge.builder("batch.launch.active", executor, ThreadPoolTaskExecutor::getActiveCount)
+                    .tag("store", store.name())
+                    .description("Import jobs running")
+                    .register(meterRegistry);
+
+            TaskExecutorJobLauncher launcher = new TaskExecutorJobLauncher();
+            launcher.setJobRepository(jobRepository);
+            launcher.setTaskExecutor(executor);
+            launcher.afterPropertiesSet();
+
+            executors.put(store, executor);
+            launchers.put(store, launcher);
+            log.info("Admitting up to {} concurrent import jobs against {} ({} more may queue)",
+                    limit.getValue(), store, queueCapacity);
+        }
+    }
+
+    @Override
+    public JobExecution run(Job job, JobParameters jobParameters)
+            throws JobExecutionAlreadyRunningException, JobRestartException,
+            JobInstanceAlreadyCompleteException, JobParametersInvalidException {
+        DataStoreType store = jobTargets.get(job.getName());
+        JobLauncher launcher = store == null ? null : launchers.get(store);
+        if (launcher == null) {
+            throw new IllegalStateException("No admission limit configured for job " + job.getName());
+        }
+        JobExecution execution = launcher.run(job, jobParameters);
+        if (execution.getStatus() == BatchStatus.FAILED && execution.getStartTime() == null) {
+            // the executor rejected it: the execution is recorded FAILED but never ran
+            throw new TaskRejectedException("Admission queue for " + store + " is full, job " + job.getName()
+                    + " (execution " + execution.getId() + ") was not started");
+        }
+        log.info("Job {} (execution {}) admitted against {}: {} running, {} queued", job.getName(),
+                execution.getId(), store, executors.get(store).getActiveCount(), executors.get(store).getQueueSize());
+        return execution;
+    }
+
+    @Override
+    public void destroy() {
+        executors.values().forEach(ThreadPoolTaskExecutor::shutdown);
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.batchmultidb.batch;
+
+import com.example.batchmultidb.domain.Customer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves audit writes off the chunk thread. Rows go into a bounded queue, so a slow
+ * audit store eventually blocks producers instead of growing the heap, and a single
+ * background thread drains it in group commits of up to {@code batchSize} rows that
+ * span chunk boundaries. {@link #flush()} is the barrier callers use before declaring
+ * their work done.
+ * <p>
+ * {@link #append} never throws: it runs after the Oracle chunk has committed. A batch the
+ * delegate rejects is kept and retried with backoff, in order, until it is written; meanwhile
+ * the queue fills and producers block. {@code flush()} succeeds once every row appended before
+ * it is written, and throws while any of them is still waiting on a failing delegate. Rows
+ * dropped by an interrupted append or at shutdown fail every later flush.
+ */
+@Slf4j
+public class AsyncCustomerAuditSink implements CustomerAuditSink, DisposableBean {
+
+    private static final long INITIAL_RETRY_MILLIS = 100;
+    private static final long MAX_RETRY_MILLIS = 30_000;
+
+    private final CustomerAuditSink delegate;
+    private final int batchSize;
+    private final long initialRetryMillis;
+    private final BlockingQueue<Customer> queue;
+    private final Thread writerThread;
+    private final Object progress = new Object();
+
+    private volatile boolean running = true;
+    private volatile Throwable failure;
+    private long appended;
+    private long written;
+    private long dropped;
+
+    public AsyncCustomerAuditSink(CustomerAuditSink delegate, int queueCapacity, int batchSize) {
+        this(delegate, queueCapacity, batchSize, INITIAL_RETRY_MILLIS);
+    }
+
+    AsyncCustomerAuditSink(CustomerAuditSink delegate, int queueCapacity, int batchSize, long initialRetryMillis) {
+        this.delegate = delegate;
+        this.batchSize = batchSize;
+        this.initialRetryMillis = initialRetryMillis;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.writerThread = new Thread(this::drain, "audit-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    @Override
+    public void append(List<? extends Customer> customers) {
+        int queued = 0;
+        try {
+            for (Customer customer : customers) {
+                queue.put(customer); // backpressure: blocks while the writer is behind
+                queued++;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Interrupted while queueing audit rows, {} of them are lost", customers.size() - queued);
+        } finally {
+            synchronized (progress) {
+                appended += queued;
+                dropped += customers.size() - queued;
+            }
+        }
+    }
+
+    @Override
+    public void flush() {
+        synchronized (progress) {
+            long target = appended;
+            try {
+                while (written < target) {
+                    Throwable error = failure;
+                    if (error != null) {
+                        throw new IllegalStateException("Audit write failed, " + (target - written)
+                                + " audit rows are not written yet (still retrying)", error);
+                    }
+                    progress.wait(100);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while flushing audit rows", e);
+            }
+            if (dropped > 0) {
+                throw new IllegalStateException(dropped + " audit rows were dropped without being written");
+            }
+        }
+    }
+
+    private void drain() {
+        List<Customer> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Customer first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+            } catch (InterruptedException e) {
+                running = false;
+                continue;
+            }
+
+            boolean committed = writeWithRetry(batch);
+            synchronized (progress) {
+                if (committed) {
+                    written += batch.size();
+                } else {
+                    dropped += batch.size();
+                }
+                progress.notifyAll();
+            }
+            batch.clear();
+        }
+    }
+
+    private boolean writeWithRetry(List<Customer> batch) {
+        long retryMillis = initialRetryMillis;
+        while (true) {
+            try {
+                long start = System.nanoTime();
+                delegate.append(batch);
+                log.debug("Group-committed {} audit rows in {} ms", batch.size(),
+                        (System.nanoTime() - start) / 1_000_000);
+                if (failure != null) {
+                    log.info("Audit writes recovered");
+                    failure = null;
+                }
+                return true;
+            } catch (Throwable e) {
+                failure = e;
+                if (!running) {
+                    log.error("Dropping {} audit rows at shutdown, the audit store still fails", batch.size(), e);
+                    return false;
+                }
+                log.error("Failed to write {} audit rows, retrying in {} ms", batch.size(), retryMillis, e);
+                synchronized (progress) {
+                    progress.notifyAll(); // let waiting flushes report the failure
+                }
+            }
+            try {
+                Thread.sleep(retryMillis);
+            } catch (InterruptedException e) {
+                running = false;
+            }
+            retryMillis = Math.min(retryMillis * 2, MAX_RETRY_MILLIS);
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        writerThread.join(TimeUnit.SECONDS.toMillis(30));
+    }
+}
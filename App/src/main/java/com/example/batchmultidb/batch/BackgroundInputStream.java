@@ -0,0 +1,116 @@
+package com.example.batchmultidb.batch;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reads a source stream on a daemon thread into a small ring of recycled blocks, so
+ * an expensive source (e.g. a decompressor) runs concurrently with the consumer.
+ * Read-ahead is bounded by {@code BLOCKS} blocks; source failures are rethrown to the reader.
+ */
+class BackgroundInputStream extends InputStream {
+
+    private static final int BLOCK_SIZE = 256 * 1024;
+    private static final int BLOCKS = 4;
+    private static final Block END = new Block(new byte[0], 0);
+
+    private final InputStream source;
+    private final BlockingQueue<Block> filled = new ArrayBlockingQueue<>(BLOCKS + 1);
+    private final BlockingQueue<byte[]> free = new ArrayBlockingQueue<>(BLOCKS);
+    private final Thread reader;
+    private volatile Throwable failure;
+
+    private Block current;
+    private int position;
+    private boolean closed;
+
+    BackgroundInputStream(InputStream source, String threadName) {
+        this.source = source;
+        for (int i = 0; i < BLOCKS; i++) {
+            free.add(new byte[BLOCK_SIZE]);
+        }
+        this.reader = new Thread(this::fill, threadName);
+        this.reader.setDaemon(true);
+        this.reader.start();
+    }
+
+    private void fill() {
+        try {
+            while (true) {
+                byte[] bytes = free.take();
+                int length = source.readNBytes(bytes, 0, bytes.length);
+                if (length == 0) {
+                    break;
+                }
+                filled.put(new Block(bytes, length));
+            }
+        } catch (InterruptedException e) {
+            return; // closed by the consumer
+        } catch (Throwable e) {
+            failure = e;
+        }
+        filled.offer(END); // always fits: at most BLOCKS data blocks are queued
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (current == null || position == current.length()) {
+            if (!nextBlock()) {
+                return -1;
+            }
+        }
+        int n = Math.min(len, current.length() - position);
+        System.arraycopy(current.bytes(), position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    private boolean nextBlock() throws IOException {
+        if (current == END) {
+            return false;
+        }
+        if (current != null) {
+            free.offer(current.bytes());
+        }
+        try {
+            current = filled.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for input");
+        }
+        position = 0;
+        if (current == END) {
+            Throwable error = failure;
+            if (error != null) {
+                throw error instanceof IOException io ? io : new IOException("Failed to read input", error);
+            }
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        reader.interrupt();
+        source.close();
+    }
+
+    private record Block(byte[] bytes, int length) {
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.batchmultidb.batch;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.repository.JobExecutionAlreadyRunningException;
+import org.springframework.batch.core.repository.JobInstanceAlreadyCompleteException;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.JobRestartException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * {@link JobRepository} that keeps the per-chunk progress of a step in memory
+ * ({@code batch.job-repository.mode=buffered}). The {@code BATCH_STEP_EXECUTION} update and the
+ * step execution context save that every chunk commit makes are only passed on when the step
+ * starts, when it ends (completed, failed or stopped) and, if {@code checkpointInterval} is not
+ * zero, once per interval. Everything else goes straight to the delegate.
+ * <p>
+ * The price: a stop request is noticed at the next write that is passed on, and after a crash
+ * (not a failure, which is written) a restart resumes from the last write, so chunks after it are
+ * imported again; use it with the {@code merge} writer strategy, which makes that harmless.
+ */
+public class BufferedJobRepository implements JobRepository {
+
+    private final JobRepository delegate;
+    private final Duration checkpointInterval;
+    private final Counter deferredWrites = Metrics.counter("batch.job-repository.deferred-writes");
+
+    public BufferedJobRepository(JobRepository delegate, Duration checkpointInterval) {
+        this.delegate = delegate;
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    @Override
+    public void update(StepExecution stepExecution) {
+        if (mustWrite(stepExecution)) {
+            delegate.update(stepExecution);
+        } else {
+            deferredWrites.increment();
+        }
+    }
+
+    @Override
+    public void updateExecutionContext(StepExecution stepExecution) {
+        if (mustWrite(stepExecution)) {
+            delegate.updateExecutionContext(stepExecution);
+        } else {
+            deferredWrites.increment();
+        }
+    }
+
+    private boolean mustWrite(StepExecution stepExecution) {
+        if (!stepExecution.getStatus().isRunning() || stepExecution.getCommitCount() == 0) {
+            return true;
+        }
+        // lastUpdated is only set by the delegate, so it is the time of the last write passed on
+        LocalDateTime lastUpdated = stepExecution.getLastUpdated();
+        return !checkpointInterval.isZero() && (lastUpdated == null
+                || Duration.between(lastUpdated, LocalDateTime.now()).compareTo(checkpointInterval) >= 0);
+    }
+
+    @Override
+    public List<String> getJobNames() {
+        return delegate.getJobNames();
+    }
+
+    @Override
+    public List<JobInstance> findJobInstancesByName(String jobName, int start, int count) {
+        return delegate.findJobInstancesByName(jobName, start, count);
+    }
+
+    @Override
+    public List<JobExecution> findJobExecutions(JobInstance jobInstance) {
+        return delegate.findJobExecutions(jobInstance);
+    }
+
+    @Override
+    public boolean isJobInstanceExists(String jobName, JobParameters jobParameters) {
+        return delegate.isJobInstanceExists(jobName, jobParameters);
+    }
+
+    @Override
+    public JobInstance createJobInstance(String jobName, JobParameters jobParameters) {
+        return delegate.createJobInstance(jobName, jobParameters);
+    }
+
+    @Override
+    public JobExecution createJobExecution(String jobName, JobParameters jobParameters)
+            throws JobExecutionAlreadyRunningException, JobRestartException, JobInstanceAlreadyCompleteException {
+        return delegate.createJobExecution(jobName, jobParameters);
+    }
+
+    @Override
+    public void update(JobExecution jobExecution) {
+        delegate.update(jobExecution);
+    }
+
+    @Override
+    public void add(StepExecution stepExecution) {
+        delegate.add(stepExecution);
+    }
+
+    @Override
+    public void addAll(Collection<StepExecution> stepExecutions) {
+        delegate.addAll(stepExecutions);
+    }
+
+    @Override
+    public void updateExecutionContext(JobExecution jobExecution) {
+        delegate.updateExecutionContext(jobExecution);
+    }
+
+    @Override
+    public JobInstance getJobInstance(String jobName, JobParameters jobParameters) {
+        return delegate.getJobInstance(jobName, jobParameters);
+    }
+
+    @Override
+    public StepExecution getLastStepExecution(JobInstance jobInstance, String stepName) {
+        return delegate.getLastStepExecution(jobInstance, stepName);
+    }
+
+    @Override
+    public long getStepExecutionCount(JobInstance jobInstance, String stepName) {
+        return delegate.getStepExecutionCount(jobInstance, stepName);
+    }
+
+    @Override
+    public JobExecution getLastJobExecution(String jobName, JobParameters jobParameters) {
+        return delegate.getLastJobExecution(jobName, jobParameters);
+    }
+
+    @Override
+    public void deleteStepExecution(StepExecution stepExecution) {
+        delegate.deleteStepExecution(stepExecution);
+    }
+
+    @Override
+    public void deleteJobExecution(JobExecution jobExecution) {
+        delegate.deleteJobExecution(jobExecution);
+    }
+
+    @Override
+    public void deleteJobInstance(JobInstance jobInstance) {
+        delegate.deleteJobInstance(jobInstance);
+    }
+}
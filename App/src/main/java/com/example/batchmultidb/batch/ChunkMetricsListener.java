@@ -0,0 +1,297 @@
+package com.example.batchmultidb.batch;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.annotation.AfterChunk;
+import org.springframework.batch.core.annotation.AfterChunkError;
+import org.springframework.batch.core.annotation.AfterProcess;
+import org.springframework.batch.core.annotation.AfterRead;
+import org.springframework.batch.core.annotation.AfterStep;
+import org.springframework.batch.core.annotation.AfterWrite;
+import org.springframework.batch.core.annotation.BeforeChunk;
+import org.springframework.batch.core.annotation.BeforeProcess;
+import org.springframework.batch.core.annotation.BeforeRead;
+import org.springframework.batch.core.annotation.BeforeStep;
+import org.springframework.batch.core.annotation.BeforeWrite;
+import org.springframework.batch.core.annotation.OnProcessError;
+import org.springframework.batch.core.annotation.OnReadError;
+import org.springframework.batch.core.annotation.OnWriteError;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.item.Chunk;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Publishes where the time of every chunk goes, tagged by step (partition workers
+ * report under their worker step's name):
+ * <ul>
+ *     <li>{@code batch.chunk.read}, {@code batch.chunk.process}, {@code batch.chunk.write}:
+ *     time spent in each leg of one chunk</li>
+ *     <li>{@code batch.chunk.items}: items written per chunk</li>
+ *     <li>{@code batch.items.throughput}: items written per second since the step started</li>
+ *     <li>{@code batch.skips} and {@code batch.chunk.rollbacks}</li>
+ *     <li>{@code batch.first-write}: JVM uptime when the first chunk of the process was written,
+ *     the time to first row of a one-shot run</li>
+ * </ul>
+ * Chunk timings are kept per thread, so a single instance serves every step and partition.
+ * Registered through its listener annotations, with {@code SimpleStepBuilder.listener(Object)}.
+ */
+public class ChunkMetricsListener {
+
+    private final MeterRegistry registry = Metrics.globalRegistry;
+    private final Map<String, StepMeters> steps = new ConcurrentHashMap<>();
+    private final ThreadLocal<ChunkTimes> current = new ThreadLocal<>();
+    private final AtomicLong firstWriteUptime = new AtomicLong(-1);
+
+    @BeforeStep
+    public void beforeStep(StepExecution stepExecution) {
+        StepMeters step = steps.computeIfAbsent(stepTag(stepExecution.getStepName()), StepMeters::new);
+        step.started();
+        current.set(new ChunkTimes(step));
+    }
+
+    @AfterStep
+    public void afterStep(StepExecution stepExecution) {
+        ChunkTimes times = current.get();
+        if (times != null) {
+            times.recordSkips(stepExecution);
+            times.step.stopped();
+            current.remove();
+        }
+    }
+
+    @BeforeChunk
+    public void beforeChunk(ChunkContext context) {
+        ChunkTimes times = current.get();
+        if (times != null) {
+            times.reset();
+        }
+    }
+
+    @BeforeRead
+    public void beforeRead() {
+        ChunkTimes times = current.get();
+        if (times != null) {
+            times.readStart = System.nanoTime();
+        }
+    }
+
+    @AfterRead
+    public void afterRead(Object item) {
+        endRead();
+    }
+
+    @OnReadError
+    public void onReadError(Exception e) {
+        endRead();
+    }
+
+    @BeforeProcess
+    public void beforeProcess(Object item) {
+        ChunkTimes times = endRead();
+        if (times != null) {
+            times.processStart = System.nanoTime();
+        }
+    }
+
+    @AfterProcess
+    public void afterProcess(Object item, Object result) {
+        endProcess();
+    }
+
+    @OnProcessError
+    public void onProcessError(Object item, Exception e) {
+        endProcess();
+    }
+
+    @BeforeWrite
+    public void beforeWrite(Chunk<?> items) {
+        ChunkTimes times = endRead();
+        if (times != null) {
+            times.writeStart = System.nanoTime();
+        }
+    }
+
+    @AfterWrite
+    public void afterWrite(Chunk<?> items) {
+        ChunkTimes times = current.get();
+        if (times != null) {
+            times.writeNanos += System.nanoTime() - times.writeStart;
+            times.written += items.size();
+        }
+        if (firstWriteUptime.get() < 0
+                && firstWriteUptime.compareAndSet(-1, ManagementFactory.getRuntimeMXBean().getUptime())) {
+            TimeGauge.builder("batch.first-write", firstWriteUptime, TimeUnit.MILLISECONDS, AtomicLong::get)
+                    .description("JVM uptime when the first chunk was written")
+                    .register(registry);
+        }
+    }
+
+    /**
+     * JVM uptime in milliseconds when the first chunk of this process was written, -1 until then.
+     */
+    public long firstWriteUptimeMillis() {
+        return firstWriteUptime.get();
+    }
+
+    @OnWriteError
+    public void onWriteError(Exception e, Chunk<?> items) {
+        ChunkTimes times = current.get();
+        if (times != null) {
+            times.writeNanos += System.nanoTime() - times.writeStart;
+        }
+    }
+
+    @AfterChunk
+    public void afterChunk(ChunkContext context) {
+        ChunkTimes times = endRead();
+        if (times != null) {
+            times.record();
+            times.recordSkips(context.getStepContext().getStepExecution());
+        }
+    }
+
+    @AfterChunkError
+    public void afterChunkError(ChunkContext context) {
+        ChunkTimes times = current.get();
+        if (times != null) {
+            times.step.rollbacks.increment();
+            times.recordSkips(context.getStepContext().getStepExecution());
+        }
+    }
+
+    private ChunkTimes endRead() {
+        // the read that returns null (end of input) gets no afterRead, so close it here
+        ChunkTimes times = current.get();
+        if (times != null && times.readStart != 0) {
+            times.readNanos += System.nanoTime() - times.readStart;
+            times.readStart = 0;
+        }
+        return times;
+    }
+
+    private void endProcess() {
+        ChunkTimes times = current.get();
+        if (times != null) {
+            times.processNanos += System.nanoTime() - times.processStart;
+        }
+    }
+
+    static String stepTag(String stepName) {
+        // partition steps are named "<workerStep>:<partition>"
+        int colon = stepName.indexOf(':');
+        return colon < 0 ? stepName : stepName.substring(0, colon);
+    }
+
+    private final class StepMeters {
+
+        private final Timer read;
+        private final Timer process;
+        private final Timer write;
+        private final DistributionSummary items;
+        private final Counter rollbacks;
+        private final Counter skips;
+        private final AtomicInteger running = new AtomicInteger();
+        private final LongAdder written = new LongAdder();
+        private volatile long startNanos;
+
+        StepMeters(String step) {
+            read = chunkTimer("batch.chunk.read", step, "Time spent reading the items of one chunk");
+            process = chunkTimer("batch.chunk.process", step, "Time spent processing the items of one chunk");
+            write = chunkTimer("batch.chunk.write", step, "Time spent writing one chunk");
+            items = DistributionSummary.builder("batch.chunk.items")
+                    .tag("step", step)
+                    .description("Items written per chunk")
+                    .register(registry);
+            rollbacks = Counter.builder("batch.chunk.rollbacks")
+                    .tag("step", step)
+                    .description("Chunks rolled back")
+                    .register(registry);
+            skips = Counter.builder("batch.skips")
+                    .tag("step", step)
+                    .description("Items skipped in read, process or write")
+                    .register(registry);
+            Gauge.builder("batch.items.throughput", this, StepMeters::throughput)
+                    .tag("step", step)
+                    .baseUnit("items/s")
+                    .description("Items written per second since the step started")
+                    .register(registry);
+        }
+
+        private Timer chunkTimer(String name, String step, String description) {
+            return Timer.builder(name).tag("step", step).description(description).register(registry);
+        }
+
+        void started() {
+            if (running.getAndIncrement() == 0) {
+                written.reset();
+                startNanos = System.nanoTime();
+            }
+        }
+
+        void stopped() {
+            running.decrementAndGet();
+        }
+
+        double throughput() {
+            if (running.get() == 0) {
+                return 0;
+            }
+            double seconds = (System.nanoTime() - startNanos) / 1e9;
+            return seconds > 0 ? written.sum() / seconds : 0;
+        }
+    }
+
+    private static final class ChunkTimes {
+
+        final StepMeters step;
+        long readStart;
+        long readNanos;
+        long processStart;
+        long processNanos;
+        long writeStart;
+        long writeNanos;
+        int written;
+        long skipsSeen;
+
+        ChunkTimes(StepMeters step) {
+            this.step = step;
+        }
+
+        void reset() {
+            readStart = 0;
+            readNanos = 0;
+            processNanos = 0;
+            writeNanos = 0;
+            written = 0;
+        }
+
+        void record() {
+            step.read.record(readNanos, TimeUnit.NANOSECONDS);
+            step.process.record(processNanos, TimeUnit.NANOSECONDS);
+            step.write.record(writeNanos, TimeUnit.NANOSECONDS);
+            step.items.record(written);
+            step.written.add(written);
+        }
+
+        void recordSkips(StepExecution stepExecution) {
+            long skipCount = stepExecution.getSkipCount();
+            if (skipCount > skipsSeen) {
+                step.skips.increment(skipCount - skipsSeen);
+                skipsSeen = skipCount;
+            }
+        }
+    }
+}
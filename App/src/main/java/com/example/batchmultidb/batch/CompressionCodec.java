@@ -0,0 +1,81 @@
+package com.example.batchmultidb.batch;
+
+import com.github.luben.zstd.ZstdInputStream;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Compression of a CSV input, detected from its file name / object key or from the
+ * object's {@code Content-Encoding}. Offsets and restart checkpoints of compressed
+ * inputs always refer to the decompressed bytes.
+ */
+public enum CompressionCodec {
+
+    NONE,
+    GZIP,
+    ZSTD;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public static CompressionCodec fromName(String name) {
+        if (name == null) {
+            return NONE;
+        }
+        String lower = name.toLowerCase(Locale.ROOT);
+        if (lower.endsWith(".gz") || lower.endsWith(".gzip")) {
+            return GZIP;
+        }
+        if (lower.endsWith(".zst") || lower.endsWith(".zstd")) {
+            return ZSTD;
+        }
+        return NONE;
+    }
+
+    public static CompressionCodec fromContentEncoding(String contentEncoding) {
+        if (contentEncoding == null) {
+            return NONE;
+        }
+        return switch (contentEncoding.trim().toLowerCase(Locale.ROOT)) {
+            case "gzip", "x-gzip" -> GZIP;
+            case "zstd" -> ZSTD;
+            default -> NONE;
+        };
+    }
+
+    /**
+     * Codec of an S3 object from its key, falling back to its {@code Content-Encoding}.
+     */
+    public static CompressionCodec of(S3Client s3Client, String bucketName, String key) {
+        CompressionCodec codec = fromName(key);
+        if (codec.isCompressed()) {
+            return codec;
+        }
+        return fromContentEncoding(s3Client.headObject(HeadObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .build()).contentEncoding());
+    }
+
+    public boolean isCompressed() {
+        return this != NONE;
+    }
+
+    /**
+     * Returns the decompressed content of {@code in}. Decompression runs on its own
+     * thread, a few blocks ahead of the caller, so it overlaps with parsing.
+     */
+    public InputStream open(InputStream in) throws IOException {
+        return switch (this) {
+            case NONE -> in;
+            case GZIP -> new BackgroundInputStream(new GZIPInputStream(in, BUFFER_SIZE), "gzip-decoder");
+            case ZSTD -> new BackgroundInputStream(
+                    new ZstdInputStream(new BufferedInputStream(in, BUFFER_SIZE)), "zstd-decoder");
+        };
+    }
+}
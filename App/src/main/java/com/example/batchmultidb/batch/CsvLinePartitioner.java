@@ -0,0 +1,81 @@
+package com.example.batchmultidb.batch;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Splits a CSV file into contiguous byte ranges whose boundaries always fall on
+ * the first byte of a record, so each range can be read by its own reader.
+ * Boundaries are found by one {@link CsvTokenizer} pass over the file: a quoted
+ * field may span lines, so a newline alone does not mark a record start.
+ */
+@Slf4j
+public class CsvLinePartitioner implements Partitioner {
+
+    public static final String START_OFFSET_KEY = "startOffset";
+    public static final String END_OFFSET_KEY = "endOffset";
+
+    private final Resource resource;
+
+    public CsvLinePartitioner(Resource resource) {
+        this.resource = resource;
+    }
+
+    @Override
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        Map<String, ExecutionContext> partitions = new LinkedHashMap<>();
+        try {
+            long length = resource.contentLength();
+
+            if (CompressionCodec.fromName(resource.getFilename()).isCompressed()) {
+                // offsets of compressed files refer to decompressed bytes: one range, read to the end
+                log.info("{} is compressed, importing it as a single partition", resource.getFilename());
+                partitions.put(partitionName(0), rangeContext(0, Long.MAX_VALUE));
+                return partitions;
+            }
+
+            // Only real files can be scanned at random offsets; anything else is read as one range
+            if (!resource.isFile() || gridSize <= 1 || length == 0) {
+                partitions.put(partitionName(0), rangeContext(0, length));
+                return partitions;
+            }
+
+            long target = Math.max(length / gridSize, 1);
+            try (CsvTokenizer tokenizer = CsvTokenizer.mapFile(resource.getFile().toPath(), 0, length, 0)) {
+                long start = 0;
+                int index = 0;
+                while (tokenizer.next()) {
+                    long offset = tokenizer.getOffset();
+                    if (offset - start >= target && offset < length) {
+                        partitions.put(partitionName(index++), rangeContext(start, offset));
+                        start = offset;
+                    }
+                }
+                partitions.put(partitionName(index), rangeContext(start, length));
+            }
+        } catch (IOException e) {
+            throw new ItemStreamException("Failed to partition CSV file " + resource.getDescription(), e);
+        }
+
+        log.info("Split {} into {} partitions", resource.getFilename(), partitions.size());
+        return partitions;
+    }
+
+    private static String partitionName(int index) {
+        return String.format("partition%04d", index);
+    }
+
+    private static ExecutionContext rangeContext(long start, long end) {
+        ExecutionContext context = new ExecutionContext();
+        context.putLong(START_OFFSET_KEY, start);
+        context.putLong(END_OFFSET_KEY, end);
+        return context;
+    }
+}
@@ -0,0 +1,369 @@
+package com.example.batchmultidb.batch;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * RFC 4180 tokenizer working directly on bytes. Local files are read through a
+ * sliding {@link java.nio.MappedByteBuffer} window; any other input goes through a
+ * reusable heap buffer. Fields are kept as offsets into the buffer and only copied
+ * when a caller asks for their value, so skipped and header records cost nothing.
+ * <p>
+ * {@link #getOffset()} is always the first byte of the next record, which makes it
+ * usable as a restart checkpoint and as a partition boundary.
+ */
+public class CsvTokenizer implements Closeable {
+
+    private static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+    private static final int DEFAULT_STREAM_BUFFER_SIZE = 64 * 1024;
+    private static final int NEED_MORE = -1;
+    private static final int END = -2;
+
+    private final Window window;
+    private ByteBuffer buffer;
+    private long bufferStart;
+    private int position;
+    private long lineNumber;
+
+    private int fieldCount;
+    private int recordStart;
+    private int recordEnd;
+    private int[] fieldStarts = new int[8];
+    private int[] fieldEnds = new int[8];
+    private boolean[] fieldQuoted = new boolean[8];
+    private boolean[] fieldEscaped = new boolean[8];
+    private byte[] scratch = new byte[256];
+
+    private CsvTokenizer(Window window, long startOffset, long lineNumber) throws IOException {
+        this.window = window;
+        this.bufferStart = startOffset;
+        this.lineNumber = lineNumber;
+        this.buffer = window.load(startOffset, 0);
+    }
+
+    /**
+     * Tokenizes the bytes of {@code file} in [startOffset, endOffset) through memory-mapped windows.
+     */
+    public static CsvTokenizer mapFile(Path file, long startOffset, long endOffset, long lineNumber) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        long end = Math.min(endOffset, channel.size());
+        return new CsvTokenizer(new MappedWindow(channel, end), Math.min(startOffset, end), lineNumber);
+    }
+
+    /**
+     * Tokenizes a stream whose first byte sits at {@code startOffset} of the underlying data.
+     */
+    public static CsvTokenizer stream(InputStream in, long startOffset, long lineNumber) throws IOException {
+        return new CsvTokenizer(new StreamWindow(in, startOffset), startOffset, lineNumber);
+    }
+
+    /**
+     * Advances to the next record; returns {@code false} once the input is exhausted.
+     */
+    public boolean next() throws IOException {
+        while (true) {
+            int next = scanRecord(position);
+            if (next >= 0) {
+                recordStart = position;
+                recordEnd = next;
+                position = next;
+                return true;
+            }
+            if (next == END) {
+                fieldCount = 0;
+                return false;
+            }
+            // the record runs past the loaded window: reload starting at the record, twice as large if needed
+            int pending = buffer.limit() - position;
+            buffer = window.load(bufferStart + position, pending == buffer.limit() ? pending * 2 : pending);
+            bufferStart += position;
+            position = 0;
+        }
+    }
+
+    private int scanRecord(int from) {
+        ByteBuffer buf = buffer;
+        int limit = buf.limit();
+        if (from >= limit) {
+            return window.hasMore(bufferStart + limit) ? NEED_MORE : END;
+        }
+
+        fieldCount = 0;
+        int newlines = 0;
+        int i = from;
+        while (true) {
+            int start = i;
+            int end;
+            boolean quoted = false;
+            boolean escaped = false;
+
+            if (i < limit && buf.get(i) == '"') {
+                quoted = true;
+                start = ++i;
+                while (true) {
+                    if (i >= limit) {
+                        if (window.hasMore(bufferStart + limit)) {
+                            return NEED_MORE;
+                        }
+                        end = i; // unterminated quote at end of input: keep what we have
+                        break;
+                    }
+                    byte b = buf.get(i);
+                    if (b == '"') {
+                        if (i + 1 >= limit && window.hasMore(bufferStart + limit)) {
+                            return NEED_MORE;
+                        }
+                        if (i + 1 < limit && buf.get(i + 1) == '"') {
+                            escaped = true;
+                            i += 2;
+                            continue;
+                        }
+                        end = i++;
+                        break;
+                    }
+                    if (b == '\n') {
+                        newlines++;
+                    }
+                    i++;
+                }
+                // tolerate anything between the closing quote and the delimiter (usually '\r')
+                while (i < limit && buf.get(i) != ',' && buf.get(i) != '\n') {
+                    i++;
+                }
+            } else {
+                while (i < limit) {
+                    byte b = buf.get(i);
+                    if (b == ',' || b == '\n') {
+                        break;
+                    }
+                    i++;
+                }
+                end = i;
+            }
+            if (i >= limit && window.hasMore(bufferStart + limit)) {
+                return NEED_MORE;
+            }
+
+            addField(start, end, quoted, escaped);
+            if (i >= limit) {
+                lineNumber += newlines + 1;
+                return i;
+            }
+            if (buf.get(i) == ',') {
+                i++;
+                continue;
+            }
+            lineNumber += newlines + 1;
+            return i + 1;
+        }
+    }
+
+    private void addField(int start, int end, boolean quoted, boolean escaped) {
+        if (fieldCount == fieldStarts.length) {
+            int size = fieldCount * 2;
+            fieldStarts = Arrays.copyOf(fieldStarts, size);
+            fieldEnds = Arrays.copyOf(fieldEnds, size);
+            fieldQuoted = Arrays.copyOf(fieldQuoted, size);
+            fieldEscaped = Arrays.copyOf(fieldEscaped, size);
+        }
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = end;
+        fieldQuoted[fieldCount] = quoted;
+        fieldEscaped[fieldCount] = escaped;
+        fieldCount++;
+    }
+
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Whether the current record is an empty line.
+     */
+    public boolean isBlank() {
+        return fieldCount == 1 && !fieldQuoted[0] && trimStart(0) == trimEnd(0);
+    }
+
+    /**
+     * Value of field {@code index}; unquoted fields are trimmed, quoted ones are unescaped.
+     */
+    public String getField(int index) {
+        int start = fieldQuoted[index] ? fieldStarts[index] : trimStart(index);
+        int end = fieldQuoted[index] ? fieldEnds[index] : trimEnd(index);
+        int length = copy(start, end);
+        if (fieldEscaped[index]) {
+            int out = 0;
+            for (int in = 0; in < length; in++) {
+                scratch[out++] = scratch[in];
+                if (scratch[in] == '"') {
+                    in++; // skip the second quote of an escaped pair
+                }
+            }
+            length = out;
+        }
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Case-insensitive ASCII prefix check on field {@code index} without decoding it.
+     */
+    public boolean fieldStartsWithIgnoreCase(int index, String prefix) {
+        int start = fieldQuoted[index] ? fieldStarts[index] : trimStart(index);
+        int end = fieldQuoted[index] ? fieldEnds[index] : trimEnd(index);
+        if (end - start < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (Character.toLowerCase((char) buffer.get(start + i)) != Character.toLowerCase(prefix.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Raw text of the current record, for diagnostics.
+     */
+    public String getRecord() {
+        int end = recordEnd;
+        while (end > recordStart && (buffer.get(end - 1) == '\n' || buffer.get(end - 1) == '\r')) {
+            end--;
+        }
+        return new String(scratch, 0, copy(recordStart, end), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Absolute offset of the first byte of the next record.
+     */
+    public long getOffset() {
+        return bufferStart + position;
+    }
+
+    /**
+     * Number of physical lines consumed so far, including newlines inside quoted fields.
+     */
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    private int copy(int start, int end) {
+        int length = end - start;
+        if (length > scratch.length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        buffer.get(start, scratch, 0, length);
+        return length;
+    }
+
+    private int trimStart(int index) {
+        int start = fieldStarts[index];
+        int end = fieldEnds[index];
+        while (start < end && (buffer.get(start) & 0xFF) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private int trimEnd(int index) {
+        int start = fieldStarts[index];
+        int end = fieldEnds[index];
+        while (end > start && (buffer.get(end - 1) & 0xFF) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window.close();
+    }
+
+    private interface Window extends Closeable {
+
+        /**
+         * Returns a buffer whose index 0 is the byte at {@code from}, holding at least
+         * {@code minLength} bytes unless the input ends first.
+         */
+        ByteBuffer load(long from, int minLength) throws IOException;
+
+        boolean hasMore(long loadedEnd);
+    }
+
+    private static final class MappedWindow implements Window {
+
+        private final FileChannel channel;
+        private final long end;
+
+        MappedWindow(FileChannel channel, long end) {
+            this.channel = channel;
+            this.end = end;
+        }
+
+        @Override
+        public ByteBuffer load(long from, int minLength) throws IOException {
+            long size = Math.min(end - from, Math.max(DEFAULT_WINDOW_SIZE, minLength));
+            return channel.map(FileChannel.MapMode.READ_ONLY, from, size);
+        }
+
+        @Override
+        public boolean hasMore(long loadedEnd) {
+            return loadedEnd < end;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    private static final class StreamWindow implements Window {
+
+        private final InputStream in;
+        private byte[] bytes = new byte[DEFAULT_STREAM_BUFFER_SIZE];
+        private long bytesStart;
+        private int filled;
+        private boolean eof;
+
+        StreamWindow(InputStream in, long startOffset) {
+            this.in = in;
+            this.bytesStart = startOffset;
+        }
+
+        @Override
+        public ByteBuffer load(long from, int minLength) throws IOException {
+            int keep = (int) (from - bytesStart);
+            int pending = filled - keep;
+            byte[] target = minLength > bytes.length ? new byte[minLength] : bytes;
+            System.arraycopy(bytes, keep, target, 0, pending);
+            bytes = target;
+            bytesStart = from;
+            filled = pending;
+            while (filled < bytes.length && !eof) {
+                int read = in.read(bytes, filled, bytes.length - filled);
+                if (read < 0) {
+                    eof = true;
+                } else {
+                    filled += read;
+                }
+            }
+            return ByteBuffer.wrap(bytes, 0, filled).slice();
+        }
+
+        @Override
+        public boolean hasMore(long loadedEnd) {
+            return !eof;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
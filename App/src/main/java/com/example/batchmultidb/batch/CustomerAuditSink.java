@@ -0,0 +1,19 @@
+package com.example.batchmultidb.batch;
+
+import com.example.batchmultidb.domain.Customer;
+
+import java.util.List;
+
+/**
+ * Destination of the {@code CUSTOMER_AUDIT} rows written alongside each imported chunk.
+ */
+public interface CustomerAuditSink {
+
+    void append(List<? extends Customer> customers);
+
+    /**
+     * Blocks until every appended row is durable; rethrows the first write failure.
+     */
+    default void flush() {
+    }
+}
@@ -0,0 +1,319 @@
+package com.example.batchmultidb.batch;
+
+import com.example.batchmultidb.domain.Customer;
+import com.example.batchmultidb.repository.CustomerReadRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.repeat.RepeatStatus;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports {@code CUSTOMER} as one CSV object ({@code firstName,lastName,email}, the import format)
+ * through an S3 multipart upload. ID ranges of {@code rangeSize} IDs are read and encoded on
+ * {@code concurrency} threads, at most {@code concurrency} ranges ahead of the upload, and
+ * concatenated in ID order into parts of at least {@code partSize} bytes, of which at most
+ * {@code concurrency} are uploaded at a time. Buffers therefore stay around
+ * {@code (concurrency + 1) * partSize} plus the ranges read ahead, whatever the table size.
+ * <p>
+ * Gzipped exports compress each range as its own gzip member; the concatenation is one valid
+ * gzip stream. The rows exported are those up to the highest ID when the export started.
+ * <p>
+ * Every call of {@link #execute} returns once the next part is uploaded, after recording it in
+ * the step execution context, so a failed export restarted with the same job parameters resumes
+ * the same upload after the last part uploaded in order. A failed upload is left open for that
+ * restart: give the bucket a lifecycle rule that aborts incomplete multipart uploads.
+ */
+@Slf4j
+public class CustomerExportTasklet implements Tasklet, StepExecutionListener {
+
+    static final String KEY_KEY = "export.key";
+    static final String UPLOAD_ID_KEY = "export.uploadId";
+    static final String MAX_ID_KEY = "export.maxId";
+    static final String LAST_ID_KEY = "export.lastId";
+    static final String ETAGS_KEY = "export.etags";
+
+    private static final String HEADER = "firstName,lastName,email\n";
+    private static final byte[] EMPTY = new byte[0];
+
+    private final CustomerReadRepository customers;
+    private final S3Client s3Client;
+    private final String bucketName;
+    private final String key;
+    private final boolean gzip;
+    private final int partSize;
+    private final int concurrency;
+    private final long rangeSize;
+
+    private ExecutorService readers;
+    private ExecutorService uploaders;
+    private final Deque<CompletableFuture<Range>> ranges = new ArrayDeque<>();
+    private final Deque<Part> uploads = new ArrayDeque<>();
+    private String objectKey;
+    private String uploadId;
+    private long maxId;
+    private long nextAfterId;
+    private int nextPartNumber;
+
+    // the part being filled: buffer[0, bufferLength) holds the rows up to bufferLastId
+    private byte[] buffer = EMPTY;
+    private int bufferLength;
+    private long bufferRows;
+    private long bufferLastId;
+
+    public CustomerExportTasklet(CustomerReadRepository customers, S3Client s3Client, String bucketName, String key,
+                                 boolean gzip, int partSize, int concurrency, long rangeSize) {
+        this.customers = customers;
+        this.s3Client = s3Client;
+        this.bucketName = bucketName;
+        this.key = key;
+        this.gzip = gzip;
+        this.partSize = partSize;
+        this.concurrency = concurrency;
+        this.rangeSize = rangeSize;
+    }
+
+    @Override
+    public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) {
+        ExecutionContext context = chunkContext.getStepContext().getStepExecution().getExecutionContext();
+        if (uploadId == null) {
+            start(context);
+        }
+        while (true) {
+            boolean sourceDone = ranges.isEmpty() && bufferLength == 0;
+            Part head = uploads.peek();
+            if (head != null && (head.eTag().isDone() || sourceDone || uploads.size() >= concurrency)) {
+                uploads.poll();
+                record(context, head, await(head.eTag(), "upload part " + head.number()));
+                contribution.incrementWriteCount(head.rows());
+                return RepeatStatus.CONTINUABLE;
+            }
+            if (sourceDone) {
+                complete(context);
+                return RepeatStatus.FINISHED;
+            }
+            if (!ranges.isEmpty()) {
+                Range range = await(ranges.poll(), "read customer range");
+                scheduleRanges();
+                append(range);
+            }
+            if (bufferLength >= partSize || (ranges.isEmpty() && bufferLength > 0)) {
+                uploadBuffer();
+            }
+        }
+    }
+
+    private void start(ExecutionContext context) {
+        if (context.containsKey(UPLOAD_ID_KEY)) {
+            objectKey = context.getString(KEY_KEY);
+            uploadId = context.getString(UPLOAD_ID_KEY);
+            maxId = context.getLong(MAX_ID_KEY);
+            nextAfterId = context.getLong(LAST_ID_KEY);
+            nextPartNumber = eTags(context).size() + 1;
+            log.info("Resuming export to s3://{}/{} with part {} after customer ID {}",
+                    bucketName, objectKey, nextPartNumber, nextAfterId);
+        } else {
+            Optional<CustomerReadRepository.IdBounds> bounds = customers.findIdBounds();
+            objectKey = key;
+            uploadId = s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(objectKey)
+                    .contentType("text/csv")
+                    .contentEncoding(gzip ? "gzip" : null)
+                    .build()).uploadId();
+            maxId = bounds.map(CustomerReadRepository.IdBounds::max).orElse(0L);
+            nextAfterId = bounds.map(b -> b.min() - 1).orElse(0L);
+            nextPartNumber = 1;
+            context.putString(KEY_KEY, objectKey);
+            context.putString(UPLOAD_ID_KEY, uploadId);
+            context.putLong(MAX_ID_KEY, maxId);
+            context.putLong(LAST_ID_KEY, nextAfterId);
+            context.putString(ETAGS_KEY, "");
+            log.info("Exporting customers up to ID {} to s3://{}/{} (upload {}, {} parts of {} bytes in flight)",
+                    maxId, bucketName, objectKey, uploadId, concurrency, partSize);
+        }
+        if (nextPartNumber == 1) {
+            append(encode(List.of(), true), 0, nextAfterId);
+        }
+        readers = Executors.newFixedThreadPool(concurrency, daemonThreads("customer-export-read-"));
+        uploaders = Executors.newFixedThreadPool(concurrency, daemonThreads("customer-export-upload-"));
+        scheduleRanges();
+    }
+
+    private void scheduleRanges() {
+        while (ranges.size() < concurrency && nextAfterId < maxId) {
+            long afterId = nextAfterId;
+            long toId = Math.min(maxId, afterId + rangeSize);
+            nextAfterId = toId;
+            ranges.add(CompletableFuture.supplyAsync(() -> {
+                List<Customer> rows = customers.findRange(afterId, toId);
+                return new Range(toId, rows.size(), rows.isEmpty() ? EMPTY : encode(rows, false));
+            }, readers));
+        }
+    }
+
+    private byte[] encode(List<Customer> rows, boolean header) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(header ? 64 : rows.size() * 64);
+        try (OutputStream encoded = gzip ? new GZIPOutputStream(bytes, 64 * 1024) : bytes;
+             Writer out = new OutputStreamWriter(encoded, StandardCharsets.UTF_8)) {
+            if (header) {
+                out.write(HEADER);
+            }
+            for (Customer customer : rows) {
+                out.write(field(customer.getFirstName()));
+                out.write(',');
+                out.write(field(customer.getLastName()));
+                out.write(',');
+                out.write(field(customer.getEmail()));
+                out.write('\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static String field(String value) {
+        if (value == null) {
+            return "";
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return '"' + value.replace("\"", "\"\"") + '"';
+            }
+        }
+        return value;
+    }
+
+    private void append(Range range) {
+        append(range.bytes(), range.rows(), range.lastId());
+    }
+
+    private void append(byte[] bytes, long rows, long lastId) {
+        if (bufferLength + bytes.length > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(bufferLength + bytes.length,
+                    Math.min(partSize, Math.max(64 * 1024, buffer.length * 2))));
+        }
+        System.arraycopy(bytes, 0, buffer, bufferLength, bytes.length);
+        bufferLength += bytes.length;
+        bufferRows += rows;
+        bufferLastId = lastId;
+    }
+
+    private void uploadBuffer() {
+        byte[] bytes = buffer;
+        int length = bufferLength;
+        int partNumber = nextPartNumber++;
+        UploadPartRequest request = UploadPartRequest.builder()
+                .bucket(bucketName)
+                .key(objectKey)
+                .uploadId(uploadId)
+                .partNumber(partNumber)
+                .contentLength((long) length)
+                .build();
+        uploads.add(new Part(partNumber, bufferLastId, bufferRows, CompletableFuture.supplyAsync(() ->
+                s3Client.uploadPart(request, RequestBody.fromContentProvider(
+                        () -> new ByteArrayInputStream(bytes, 0, length), length, "application/octet-stream")).eTag(),
+                uploaders)));
+        buffer = EMPTY;
+        bufferLength = 0;
+        bufferRows = 0;
+    }
+
+    private void record(ExecutionContext context, Part part, String eTag) {
+        List<String> eTags = eTags(context);
+        eTags.add(eTag);
+        context.putString(ETAGS_KEY, String.join(" ", eTags));
+        context.putLong(LAST_ID_KEY, part.lastId());
+        log.debug("Uploaded part {} of s3://{}/{} ({} rows, up to customer ID {})",
+                part.number(), bucketName, objectKey, part.rows(), part.lastId());
+    }
+
+    private void complete(ExecutionContext context) {
+        List<String> eTags = eTags(context);
+        List<CompletedPart> parts = new ArrayList<>(eTags.size());
+        for (int i = 0; i < eTags.size(); i++) {
+            parts.add(CompletedPart.builder().partNumber(i + 1).eTag(eTags.get(i)).build());
+        }
+        s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(objectKey)
+                .uploadId(uploadId)
+                .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())
+                .build());
+        log.info("Exported customers up to ID {} to s3://{}/{} in {} parts", maxId, bucketName, objectKey, parts.size());
+    }
+
+    private static List<String> eTags(ExecutionContext context) {
+        String eTags = context.getString(ETAGS_KEY, "");
+        return eTags.isEmpty() ? new ArrayList<>() : new ArrayList<>(Arrays.asList(eTags.split(" ")));
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static <T> T await(CompletableFuture<T> future, String what) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw new IllegalStateException("Customer export failed to " + what, e.getCause());
+        }
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        ranges.forEach(range -> range.cancel(true));
+        uploads.forEach(part -> part.eTag().cancel(true));
+        if (readers != null) {
+            readers.shutdownNow();
+            uploaders.shutdownNow();
+        }
+        return null;
+    }
+
+    private record Range(long lastId, long rows, byte[] bytes) {
+    }
+
+    private record Part(int number, long lastId, long rows, CompletableFuture<String> eTag) {
+    }
+}
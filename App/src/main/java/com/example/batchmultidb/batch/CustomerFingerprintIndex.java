@@ -0,0 +1,146 @@
+package com.example.batchmultidb.batch;
+
+import com.example.batchmultidb.domain.Customer;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code CUSTOMER_FINGERPRINT} table next to {@code CUSTOMER}: for every imported email, a
+ * 64-bit hash of the email and one of the row's content (first and last name as written), 16
+ * bytes a row. Delta imports ({@code batch.delta.enabled}) {@link #load} it once per job and drop
+ * input rows whose content hash is unchanged; {@link #record} stores the hashes of written rows.
+ * <p>
+ * Hashes come from {@link EmailFingerprintSet#fingerprint}. Two emails with the same hash only
+ * make one of them look changed (written again); a changed row is only missed if both its email
+ * and its content hash collide.
+ */
+public class CustomerFingerprintIndex {
+
+    private static final int FETCH_SIZE = 10_000;
+    private static final char FIELD_SEPARATOR = '\u001f';
+    private static final String UPSERT_SQL = "MERGE INTO CUSTOMER_FINGERPRINT f USING ("
+            + "SELECT CAST(? AS NUMBER(19)) EMAIL_HASH, CAST(? AS NUMBER(19)) CONTENT_HASH FROM DUAL) s"
+            + " ON (f.EMAIL_HASH = s.EMAIL_HASH)"
+            + " WHEN MATCHED THEN UPDATE SET f.CONTENT_HASH = s.CONTENT_HASH"
+            + " WHEN NOT MATCHED THEN INSERT (EMAIL_HASH, CONTENT_HASH) VALUES (s.EMAIL_HASH, s.CONTENT_HASH)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CustomerFingerprintIndex(DataSource targetDataSource) {
+        this.jdbcTemplate = new JdbcTemplate(targetDataSource);
+        this.jdbcTemplate.setFetchSize(FETCH_SIZE);
+    }
+
+    /**
+     * The fingerprints currently in the table, in a read-only open-addressing table.
+     */
+    public Fingerprints load() {
+        Long expected = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM CUSTOMER_FINGERPRINT", Long.class);
+        Fingerprints fingerprints = new Fingerprints(expected == null ? 0 : expected);
+        jdbcTemplate.query("SELECT EMAIL_HASH, CONTENT_HASH FROM CUSTOMER_FINGERPRINT", rs -> {
+            fingerprints.put(rs.getLong(1), rs.getLong(2));
+        });
+        return fingerprints;
+    }
+
+    /**
+     * Stores the fingerprints of written customers; the last occurrence of an email wins.
+     */
+    public void record(Collection<? extends Customer> customers) {
+        Map<Long, Long> byEmail = new LinkedHashMap<>();
+        for (Customer customer : customers) {
+            byEmail.put(emailHash(customer), contentHash(customer));
+        }
+        List<Object[]> rows = new ArrayList<>(byEmail.size());
+        byEmail.forEach((email, content) -> rows.add(new Object[]{email, content}));
+        jdbcTemplate.batchUpdate(UPSERT_SQL, rows);
+    }
+
+    static long emailHash(Customer customer) {
+        return EmailFingerprintSet.fingerprint(customer.getEmail());
+    }
+
+    static long contentHash(Customer customer) {
+        return EmailFingerprintSet.fingerprint(customer.getFirstName() + FIELD_SEPARATOR + customer.getLastName());
+    }
+
+    /**
+     * Email hash to content hash, filled by {@link #load} and only read afterwards, so partition
+     * workers can share it without locking.
+     */
+    public static final class Fingerprints {
+
+        private static final float LOAD_FACTOR = 0.75f;
+
+        private long[] emails;
+        private long[] contents;
+        private long size;
+
+        Fingerprints(long expectedSize) {
+            int needed = (int) Math.min(1 << 30, Math.ceil(Math.max(16, expectedSize) / LOAD_FACTOR));
+            emails = new long[Integer.highestOneBit(needed - 1) << 1];
+            contents = new long[emails.length];
+        }
+
+        /**
+         * True if the customer's email was recorded with the same content.
+         */
+        public boolean isUnchanged(Customer customer) {
+            long email = emailHash(customer);
+            int slot = slot(emails, email);
+            return emails[slot] == email && contents[slot] == contentHash(customer);
+        }
+
+        public long size() {
+            return size;
+        }
+
+        /**
+         * Heap bytes held by the hash tables.
+         */
+        public long memoryBytes() {
+            return 32L + 16L * emails.length;
+        }
+
+        void put(long email, long content) {
+            int slot = slot(emails, email);
+            if (emails[slot] != email) {
+                emails[slot] = email;
+                if (++size > emails.length * LOAD_FACTOR) {
+                    rehash();
+                    slot = slot(emails, email);
+                }
+            }
+            contents[slot] = content;
+        }
+
+        private void rehash() {
+            long[] oldEmails = emails;
+            long[] oldContents = contents;
+            emails = new long[oldEmails.length * 2];
+            contents = new long[emails.length];
+            for (int i = 0; i < oldEmails.length; i++) {
+                if (oldEmails[i] != 0) {
+                    int slot = slot(emails, oldEmails[i]);
+                    emails[slot] = oldEmails[i];
+                    contents[slot] = oldContents[i];
+                }
+            }
+        }
+
+        private static int slot(long[] table, long email) {
+            int mask = table.length - 1;
+            int slot = (int) email & mask;
+            while (table[slot] != 0 && table[slot] != email) {
+                slot = (slot + 1) & mask; // linear probing
+            }
+            return slot;
+        }
+    }
+}
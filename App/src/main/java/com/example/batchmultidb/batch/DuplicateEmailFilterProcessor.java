@@ -0,0 +1,117 @@
+package com.example.batchmultidb.batch;
+
+import com.example.batchmultidb.domain.Customer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Drops customers whose email is already in the target {@code CUSTOMER} table or
+ * appeared earlier in the same job, so they never reach the unique constraint.
+ * Existing emails are streamed into an {@link EmailFingerprintSet} per job execution,
+ * shared by the partition workers running for it and dropped when the last of them
+ * ends; concurrent jobs each get their own. A restart, or a partition starting after
+ * the others ended, reloads it, which also forgets emails of chunks that were rolled
+ * back. Filtered items show up in the step's filter count.
+ */
+@Slf4j
+public class DuplicateEmailFilterProcessor implements ItemProcessor<Customer, Customer>, StepExecutionListener {
+
+    private static final int FETCH_SIZE = 10_000;
+
+    private final ItemProcessor<Customer, Customer> delegate;
+    private final JdbcTemplate jdbcTemplate;
+
+    // written under this lock, read per item without it
+    private final Map<Long, JobEmails> byJobExecution = new ConcurrentHashMap<>();
+
+    public DuplicateEmailFilterProcessor(ItemProcessor<Customer, Customer> delegate, DataSource targetDataSource) {
+        this.delegate = delegate;
+        this.jdbcTemplate = new JdbcTemplate(targetDataSource);
+        this.jdbcTemplate.setFetchSize(FETCH_SIZE);
+    }
+
+    @Override
+    public synchronized void beforeStep(StepExecution stepExecution) {
+        JobEmails job = byJobExecution.get(stepExecution.getJobExecutionId());
+        if (job == null) {
+            job = new JobEmails(preload());
+            byJobExecution.put(stepExecution.getJobExecutionId(), job);
+        }
+        job.runningSteps++;
+    }
+
+    private EmailFingerprintSet preload() {
+        long start = System.nanoTime();
+        Long expected = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM CUSTOMER", Long.class);
+        EmailFingerprintSet set = new EmailFingerprintSet(expected == null ? 0 : expected);
+        jdbcTemplate.query("SELECT EMAIL FROM CUSTOMER", rs -> {
+            set.add(rs.getString(1));
+        });
+        log.info("Preloaded {} existing emails in {} ms, fingerprint set uses {} KB",
+                set.size(), (System.nanoTime() - start) / 1_000_000, set.memoryBytes() / 1024);
+        return set;
+    }
+
+    @Override
+    public Customer process(Customer item) throws Exception {
+        Customer customer = delegate.process(item);
+        if (customer == null) {
+            return null;
+        }
+        if (!emails().add(customer.getEmail())) {
+            log.debug("Skipping duplicate email {}", customer.getEmail());
+            return null;
+        }
+        return customer;
+    }
+
+    @Override
+    public synchronized ExitStatus afterStep(StepExecution stepExecution) {
+        JobEmails job = byJobExecution.get(stepExecution.getJobExecutionId());
+        if (job == null) {
+            return null;
+        }
+        log.info("Step {} filtered {} duplicate emails; {} emails known, fingerprint set uses {} KB",
+                stepExecution.getStepName(), stepExecution.getFilterCount(), job.emails.size(),
+                job.emails.memoryBytes() / 1024);
+        if (--job.runningSteps == 0) {
+            byJobExecution.remove(stepExecution.getJobExecutionId());
+        }
+        return null;
+    }
+
+    EmailFingerprintSet emails(Long jobExecutionId) {
+        JobEmails job = byJobExecution.get(jobExecutionId);
+        return job == null ? null : job.emails;
+    }
+
+    private EmailFingerprintSet emails() {
+        StepContext context = StepSynchronizationManager.getContext();
+        EmailFingerprintSet emails = context == null ? null : emails(context.getStepExecution().getJobExecutionId());
+        if (emails == null) {
+            throw new IllegalStateException("No emails preloaded for the current job execution;"
+                    + " register this processor as a StepExecutionListener of the step");
+        }
+        return emails;
+    }
+
+    private static final class JobEmails {
+
+        private final EmailFingerprintSet emails;
+        private int runningSteps;
+
+        private JobEmails(EmailFingerprintSet emails) {
+            this.emails = emails;
+        }
+    }
+}
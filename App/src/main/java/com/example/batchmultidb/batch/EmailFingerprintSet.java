@@ -0,0 +1,132 @@
+package com.example.batchmultidb.batch;
+
+/**
+ * Set of 64-bit email fingerprints stored in primitive open-addressing tables
+ * (about 11-21 bytes per email instead of ~100 for a {@code HashSet<String>}).
+ * The set is split into independently locked stripes so partitioned steps can
+ * share it. Two different emails collide with probability ~n/2^64, i.e. about one
+ * in 10^12 per insert at 10M entries.
+ */
+public class EmailFingerprintSet {
+
+    private static final int STRIPES = 64;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    public EmailFingerprintSet(long expectedSize) {
+        int perStripe = (int) Math.min(1 << 30, Math.max(16, expectedSize / STRIPES));
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(perStripe);
+        }
+    }
+
+    /**
+     * Adds the email; returns {@code false} if it (or a colliding fingerprint) was already present.
+     */
+    public boolean add(String email) {
+        long fingerprint = fingerprint(email);
+        return stripeFor(fingerprint).add(fingerprint);
+    }
+
+    public boolean contains(String email) {
+        long fingerprint = fingerprint(email);
+        return stripeFor(fingerprint).contains(fingerprint);
+    }
+
+    public long size() {
+        long size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    /**
+     * Heap bytes held by the hash tables.
+     */
+    public long memoryBytes() {
+        long bytes = 0;
+        for (Stripe stripe : stripes) {
+            bytes += stripe.memoryBytes();
+        }
+        return bytes;
+    }
+
+    private Stripe stripeFor(long fingerprint) {
+        return stripes[(int) (fingerprint >>> 58)]; // top 6 bits; the table index uses the low bits
+    }
+
+    static long fingerprint(String email) {
+        // FNV-1a over the UTF-16 chars, then the murmur3 finalizer to spread the bits
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < email.length(); i++) {
+            h ^= email.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h == 0 ? 1 : h; // 0 marks an empty slot
+    }
+
+    private static final class Stripe {
+
+        private long[] table;
+        private int size;
+
+        Stripe(int expectedSize) {
+            table = new long[tableSize(expectedSize)];
+        }
+
+        synchronized boolean add(long fingerprint) {
+            int slot = slot(table, fingerprint);
+            if (table[slot] == fingerprint) {
+                return false;
+            }
+            table[slot] = fingerprint;
+            if (++size > table.length * LOAD_FACTOR) {
+                rehash();
+            }
+            return true;
+        }
+
+        synchronized boolean contains(long fingerprint) {
+            return table[slot(table, fingerprint)] == fingerprint;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized long memoryBytes() {
+            return 16L + 8L * table.length;
+        }
+
+        private void rehash() {
+            long[] old = table;
+            table = new long[old.length * 2];
+            for (long fingerprint : old) {
+                if (fingerprint != 0) {
+                    table[slot(table, fingerprint)] = fingerprint;
+                }
+            }
+        }
+
+        private static int slot(long[] table, long fingerprint) {
+            int mask = table.length - 1;
+            int slot = (int) fingerprint & mask;
+            while (table[slot] != 0 && table[slot] != fingerprint) {
+                slot = (slot + 1) & mask; // linear probing
+            }
+            return slot;
+        }
+
+        private static int tableSize(int expectedSize) {
+            int needed = (int) Math.ceil(expectedSize / LOAD_FACTOR);
+            return Integer.highestOneBit(Math.max(needed - 1, 1)) << 1;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.batchmultidb.batch;
+
+import com.example.batchmultidb.datasource.DataStoreType;
+import com.example.batchmultidb.domain.Customer;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+@RequiredArgsConstructor
+public class JdbcCustomerAuditSink implements CustomerAuditSink {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Timer writeTimer = TimedCustomerItemWriter.storeWriteTimer(DataStoreType.H2, "CUSTOMER_AUDIT");
+
+    @Override
+    public void append(List<? extends Customer> customers) {
+        writeTimer.record(() -> jdbcTemplate.batchUpdate(
+                "INSERT INTO CUSTOMER_AUDIT (FIRST_NAME, LAST_NAME, EMAIL) VALUES (?, ?, ?)",
+                customers,
+                customers.size(),
+                (ps, customer) -> {
+                    ps.setString(1, customer.getFirstName());
+                    ps.setString(2, customer.getLastName());
+                    ps.setString(3, customer.getEmail());
+                }
+        ));
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.batchmultidb.batch;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.partition.support.AbstractPartitionHandler;
+import org.springframework.batch.core.repository.JobRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Manager side of remote partitioning: publishes the partition step executions to the
+ * {@link PartitionQueue} and polls it until every partition is finished by some
+ * {@link PartitionQueueWorker}. Partitions still unclaimed after {@code timeout} are
+ * withdrawn and marked FAILED, so a restart of the job runs them again.
+ */
+@Slf4j
+public class JdbcQueuePartitionHandler extends AbstractPartitionHandler {
+
+    private final PartitionQueue queue;
+    private final JobExplorer jobExplorer;
+    private final JobRepository jobRepository;
+    private final Step workerStep;
+    private final Duration pollInterval;
+    private final Duration timeout;
+
+    public JdbcQueuePartitionHandler(PartitionQueue queue, JobExplorer jobExplorer, JobRepository jobRepository,
+                                     Step workerStep, int gridSize, Duration pollInterval, Duration timeout) {
+        this.queue = queue;
+        this.jobExplorer = jobExplorer;
+        this.jobRepository = jobRepository;
+        this.workerStep = workerStep;
+        this.pollInterval = pollInterval;
+        this.timeout = timeout;
+        setGridSize(gridSize);
+    }
+
+    @Override
+    protected Set<StepExecution> doHandle(StepExecution managerStepExecution,
+                                          Set<StepExecution> partitionStepExecutions) throws Exception {
+        if (partitionStepExecutions.isEmpty()) {
+            return partitionStepExecutions;
+        }
+        queue.enqueue(managerStepExecution, workerStep.getName(), partitionStepExecutions);
+        log.info("Queued {} partitions of {} for worker nodes", partitionStepExecutions.size(),
+                managerStepExecution.getStepName());
+
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (queue.pending(managerStepExecution.getId()) > 0) {
+            if (System.nanoTime() - deadline > 0) {
+                int withdrawn = withdrawUnclaimed(partitionStepExecutions);
+                throw new TimeoutException("Partitions of " + managerStepExecution.getStepName()
+                        + " did not finish within " + timeout + " (" + withdrawn + " never claimed)");
+            }
+            Thread.sleep(pollInterval.toMillis());
+        }
+
+        Set<StepExecution> finished = new HashSet<>();
+        for (StepExecution partition : partitionStepExecutions) {
+            finished.add(jobExplorer.getStepExecution(partition.getJobExecutionId(), partition.getId()));
+        }
+        return finished;
+    }
+
+    private int withdrawUnclaimed(Set<StepExecution> partitionStepExecutions) {
+        int withdrawn = 0;
+        for (StepExecution partition : partitionStepExecutions) {
+            if (queue.cancel(partition.getId())) {
+                partition.setStatus(BatchStatus.FAILED);
+                partition.setExitStatus(ExitStatus.FAILED.addExitDescription("No worker node claimed the partition"));
+                partition.setEndTime(LocalDateTime.now());
+                jobRepository.update(partition);
+                withdrawn++;
+            }
+        }
+        return withdrawn;
+    }
+}
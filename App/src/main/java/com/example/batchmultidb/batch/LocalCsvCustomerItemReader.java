@@ -7,79 +7,145 @@ import org.springframework.batch.item.ItemStreamException;
 import org.springframework.batch.item.ItemStreamReader;
 import org.springframework.core.io.Resource;
 
-import java.io.BufferedReader;
+import java.io.FilterInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
-import java.util.Iterator;
+import java.io.InputStream;
 
 @Slf4j
 public class LocalCsvCustomerItemReader implements ItemStreamReader<Customer> {
 
+    static final String OFFSET_KEY = "local.csv.offset";
+    static final String LINE_KEY = "local.csv.line";
+
     private final Resource resource;
-    private BufferedReader reader;
-    private Iterator<String> lineIterator;
+    private final long startOffset;
+    private final long endOffset;
+    private CsvTokenizer tokenizer;
     private boolean headerSkipped = false;
 
     public LocalCsvCustomerItemReader(Resource resource) {
+        this(resource, 0, Long.MAX_VALUE);
+    }
+
+    /**
+     * Reads only the bytes in [startOffset, endOffset); both offsets must sit on record starts.
+     */
+    public LocalCsvCustomerItemReader(Resource resource, long startOffset, long endOffset) {
         this.resource = resource;
+        this.startOffset = startOffset;
+        this.endOffset = endOffset;
     }
 
     @Override
-    public Customer read() {
-        if (lineIterator == null || !lineIterator.hasNext()) {
+    public Customer read() throws IOException {
+        if (tokenizer == null) {
             return null;
         }
 
-        String line = lineIterator.next();
-        
-        // skip header if present
-        if (!headerSkipped && line.toLowerCase().startsWith("firstname")) {
-            headerSkipped = true;
-            return read();
-        }
+        while (tokenizer.next()) {
+            // skip header if present
+            if (!headerSkipped && tokenizer.fieldStartsWithIgnoreCase(0, "firstname")) {
+                headerSkipped = true;
+                continue;
+            }
 
-        String[] parts = line.split(",");
-        if (parts.length < 3) {
-            log.warn("Skipping invalid line: {}", line);
-            return read();
-        }
+            if (tokenizer.getFieldCount() < 3) {
+                if (!tokenizer.isBlank()) {
+                    log.warn("Skipping invalid line {}: {}", tokenizer.getLineNumber(), tokenizer.getRecord());
+                }
+                continue;
+            }
 
-        return Customer.builder()
-                .firstName(parts[0].trim())
-                .lastName(parts[1].trim())
-                .email(parts[2].trim())
-                .build();
+            return Customer.builder()
+                    .firstName(tokenizer.getField(0))
+                    .lastName(tokenizer.getField(1))
+                    .email(tokenizer.getField(2))
+                    .build();
+        }
+        return null;
     }
 
     @Override
     public void open(ExecutionContext executionContext) throws ItemStreamException {
+        // resume from the last committed line when restarting
+        long offset = executionContext.getLong(OFFSET_KEY, startOffset);
+        long lineNumber = executionContext.getLong(LINE_KEY, 0);
         try {
-            this.reader = new BufferedReader(
-                    new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8)
-            );
-            this.lineIterator = reader.lines().iterator();
+            this.tokenizer = openTokenizer(offset, lineNumber);
             this.headerSkipped = false;
-            log.info("Opened local CSV file: {}", resource.getFilename());
+            log.info("Opened local CSV file: {} [{}, {}) at line {}", resource.getFilename(), offset,
+                    endOffset == Long.MAX_VALUE ? "EOF" : endOffset, lineNumber);
         } catch (IOException e) {
             throw new ItemStreamException("Failed to open local CSV file", e);
         }
     }
 
+    private CsvTokenizer openTokenizer(long offset, long lineNumber) throws IOException {
+        CompressionCodec codec = CompressionCodec.fromName(resource.getFilename());
+        if (resource.isFile() && !codec.isCompressed()) {
+            return CsvTokenizer.mapFile(resource.getFile().toPath(), offset, endOffset, lineNumber);
+        }
+        // e.g. a .csv.gz or a classpath resource inside a jar: no random access, stream it instead
+        InputStream is = codec.open(resource.getInputStream());
+        is.skipNBytes(offset);
+        if (endOffset != Long.MAX_VALUE) {
+            is = new RangeInputStream(is, endOffset - offset);
+        }
+        return CsvTokenizer.stream(is, offset, lineNumber);
+    }
+
     @Override
     public void update(ExecutionContext executionContext) throws ItemStreamException {
-        // no-op
+        if (tokenizer != null) {
+            executionContext.putLong(OFFSET_KEY, tokenizer.getOffset());
+            executionContext.putLong(LINE_KEY, tokenizer.getLineNumber());
+        }
     }
 
     @Override
     public void close() throws ItemStreamException {
         try {
-            if (reader != null) {
-                reader.close();
+            if (tokenizer != null) {
+                tokenizer.close();
+                tokenizer = null;
                 log.info("Closed local CSV file reader");
             }
         } catch (IOException e) {
             log.error("Error closing reader", e);
         }
     }
+
+    private static final class RangeInputStream extends FilterInputStream {
+
+        private long remaining;
+
+        RangeInputStream(InputStream in, long length) {
+            super(in);
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = super.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int n = super.read(b, off, (int) Math.min(len, remaining));
+            if (n > 0) {
+                remaining -= n;
+            }
+            return n;
+        }
+    }
 }
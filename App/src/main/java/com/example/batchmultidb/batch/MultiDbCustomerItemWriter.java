@@ -1,23 +1,25 @@
 package com.example.batchmultidb.batch;
 
-import com.example.batchmultidb.datasource.ConnectionFactory;
-import com.example.batchmultidb.datasource.DataStoreType;
 import com.example.batchmultidb.domain.Customer;
-import com.example.batchmultidb.repository.oracle.CustomerOracleRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
 import org.springframework.batch.item.Chunk;
 import org.springframework.batch.item.ItemWriter;
-import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.List;
 
 @Slf4j
 @RequiredArgsConstructor
-public class MultiDbCustomerItemWriter implements ItemWriter<Customer> {
+public class MultiDbCustomerItemWriter implements ItemWriter<Customer>, StepExecutionListener {
 
-    private final CustomerOracleRepository oracleRepository;
-    private final ConnectionFactory connectionFactory;
+    private final ItemWriter<Customer> oracleWriter;
+    private final CustomerAuditSink auditSink;
 
     @Override
     public void write(Chunk<? extends Customer> chunk) throws Exception {
@@ -25,24 +27,36 @@ public class MultiDbCustomerItemWriter implements ItemWriter<Customer> {
             return;
         }
 
-        List<? extends Customer> items = chunk.getItems();
+        List<? extends Customer> items = List.copyOf(chunk.getItems());
         
-        // 1) Save to Oracle through JPA
-        oracleRepository.saveAll(items);
-
-        // 2) Save to H2 through JDBC (audit table)
-        JdbcTemplate h2 = connectionFactory.getJdbcTemplate(DataStoreType.H2);
-
-        h2.batchUpdate(
-                "INSERT INTO CUSTOMER_AUDIT (FIRST_NAME, LAST_NAME, EMAIL) VALUES (?, ?, ?)",
-                items,
-                items.size(),
-                (ps, customer) -> {
-                    ps.setString(1, customer.getFirstName());
-                    ps.setString(2, customer.getLastName());
-                    ps.setString(3, customer.getEmail());
+        // 1) Save to Oracle (JPA or JDBC batch, see batch.writer.strategy)
+        oracleWriter.write(chunk);
+
+        // 2) Hand the rows to the audit sink (CUSTOMER_AUDIT table or audit log) once the Oracle chunk has committed
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    auditSink.append(items);
                 }
-        );
-        log.info("Wrote {} customers to Oracle and {} to H2 audit", items.size(), items.size());
+            });
+        } else {
+            auditSink.append(items);
+        }
+        log.info("Wrote {} customers to Oracle, {} handed to the audit sink", items.size(), items.size());
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        // flush barrier: the step only completes once its audit rows are written
+        try {
+            auditSink.flush();
+            return null;
+        } catch (RuntimeException e) {
+            log.error("Audit rows of step {} could not be written", stepExecution.getStepName(), e);
+            stepExecution.addFailureException(e);
+            stepExecution.setStatus(BatchStatus.FAILED);
+            return ExitStatus.FAILED.addExitDescription(e);
+        }
     }
 }
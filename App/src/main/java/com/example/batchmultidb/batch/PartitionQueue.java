@@ -0,0 +1,90 @@
+package com.example.batchmultidb.batch;
+
+import org.springframework.batch.core.StepExecution;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * The {@code BATCH_PARTITION_QUEUE} table, through which a manager step hands its partitions
+ * to the worker nodes sharing the job repository database. A node claims a partition with a
+ * conditional {@code UPDATE ... WHERE STATUS = 'QUEUED'}: the row lock taken by the update
+ * makes exactly one of several racing nodes see one updated row.
+ */
+public class PartitionQueue {
+
+    public enum Status {
+        QUEUED, CLAIMED, COMPLETED, FAILED, CANCELLED
+    }
+
+    public record Claim(long jobExecutionId, long stepExecutionId, String workerStep) {
+    }
+
+    private static final int CLAIM_CANDIDATES = 16;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public PartitionQueue(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    public void enqueue(StepExecution managerStepExecution, String workerStep, Collection<StepExecution> partitions) {
+        List<Object[]> rows = new ArrayList<>(partitions.size());
+        for (StepExecution partition : partitions) {
+            rows.add(new Object[]{partition.getId(), partition.getJobExecutionId(), managerStepExecution.getId(),
+                    workerStep, Status.QUEUED.name()});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO BATCH_PARTITION_QUEUE (STEP_EXECUTION_ID, JOB_EXECUTION_ID, "
+                + "MANAGER_STEP_EXECUTION_ID, WORKER_STEP, STATUS, QUEUED_AT) "
+                + "VALUES (?, ?, ?, ?, ?, CURRENT_TIMESTAMP)", rows);
+    }
+
+    /**
+     * Claims the oldest queued partition of one of {@code workerSteps} for {@code nodeId}, if any.
+     */
+    public Optional<Claim> claim(String nodeId, Set<String> workerSteps) {
+        List<Claim> candidates = jdbcTemplate.query("SELECT JOB_EXECUTION_ID, STEP_EXECUTION_ID, WORKER_STEP "
+                        + "FROM BATCH_PARTITION_QUEUE WHERE STATUS = ? ORDER BY STEP_EXECUTION_ID "
+                        + "FETCH FIRST " + CLAIM_CANDIDATES + " ROWS ONLY",
+                (rs, rowNum) -> new Claim(rs.getLong(1), rs.getLong(2), rs.getString(3)), Status.QUEUED.name());
+        for (Claim candidate : candidates) {
+            if (workerSteps.contains(candidate.workerStep()) && jdbcTemplate.update(
+                    "UPDATE BATCH_PARTITION_QUEUE SET STATUS = ?, CLAIMED_BY = ?, CLAIMED_AT = CURRENT_TIMESTAMP "
+                            + "WHERE STEP_EXECUTION_ID = ? AND STATUS = ?",
+                    Status.CLAIMED.name(), nodeId, candidate.stepExecutionId(), Status.QUEUED.name()) == 1) {
+                return Optional.of(candidate);
+            }
+        }
+        return Optional.empty();
+    }
+
+    public void finish(long stepExecutionId, boolean completed) {
+        jdbcTemplate.update("UPDATE BATCH_PARTITION_QUEUE SET STATUS = ?, FINISHED_AT = CURRENT_TIMESTAMP "
+                        + "WHERE STEP_EXECUTION_ID = ?",
+                (completed ? Status.COMPLETED : Status.FAILED).name(), stepExecutionId);
+    }
+
+    /**
+     * Withdraws a partition no node has claimed yet; false when one already has.
+     */
+    public boolean cancel(long stepExecutionId) {
+        return jdbcTemplate.update("UPDATE BATCH_PARTITION_QUEUE SET STATUS = ?, FINISHED_AT = CURRENT_TIMESTAMP "
+                        + "WHERE STEP_EXECUTION_ID = ? AND STATUS = ?",
+                Status.CANCELLED.name(), stepExecutionId, Status.QUEUED.name()) == 1;
+    }
+
+    /**
+     * Partitions of the given manager step that are still queued or running.
+     */
+    public int pending(long managerStepExecutionId) {
+        Integer pending = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM BATCH_PARTITION_QUEUE "
+                        + "WHERE MANAGER_STEP_EXECUTION_ID = ? AND STATUS IN (?, ?)", Integer.class,
+                managerStepExecutionId, Status.QUEUED.name(), Status.CLAIMED.name());
+        return pending == null ? 0 : pending;
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.batchmultidb.batch;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.JobInterruptedException;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.partition.support.PartitionStep;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Worker side of remote partitioning: {@code threads} pollers claim partitions from the
+ * {@link PartitionQueue}, run them with the local bean of their worker step (so with this
+ * node's processor and writers) and record the outcome in the queue. Every node sharing the
+ * job repository database can run one, whichever node launched the job.
+ */
+@Slf4j
+public class PartitionQueueWorker implements SmartLifecycle {
+
+    private final PartitionQueue queue;
+    private final JobExplorer jobExplorer;
+    private final JobRepository jobRepository;
+    private final Map<String, Step> workerSteps = new LinkedHashMap<>();
+    private final String nodeId;
+    private final int threads;
+    private final Duration pollInterval;
+
+    private ThreadPoolTaskExecutor executor;
+    private volatile boolean running;
+
+    public PartitionQueueWorker(PartitionQueue queue, JobExplorer jobExplorer, JobRepository jobRepository,
+                                Iterable<Step> steps, String nodeId, int threads, Duration pollInterval) {
+        this.queue = queue;
+        this.jobExplorer = jobExplorer;
+        this.jobRepository = jobRepository;
+        for (Step step : steps) {
+            if (!(step instanceof PartitionStep)) {
+                workerSteps.put(step.getName(), step);
+            }
+        }
+        this.nodeId = nodeId;
+        this.threads = threads;
+        this.pollInterval = pollInterval;
+    }
+
+    @Override
+    public void start() {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setThreadNamePrefix("partition-worker-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+        running = true;
+        for (int i = 0; i < threads; i++) {
+            executor.execute(this::poll);
+        }
+        log.info("Node {} claims partitions of {} from the partition queue with {} threads",
+                nodeId, workerSteps.keySet(), threads);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        executor.shutdown();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void poll() {
+        while (running) {
+            Optional<PartitionQueue.Claim> claim;
+            try {
+                claim = queue.claim(nodeId, workerSteps.keySet());
+            } catch (RuntimeException e) {
+                log.warn("Could not poll the partition queue", e);
+                claim = Optional.empty();
+            }
+            if (claim.isPresent()) {
+                execute(claim.get());
+            } else {
+                try {
+                    Thread.sleep(pollInterval.toMillis());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void execute(PartitionQueue.Claim claim) {
+        StepExecution stepExecution = jobExplorer.getStepExecution(claim.jobExecutionId(), claim.stepExecutionId());
+        if (stepExecution == null) {
+            log.warn("Step execution {} of job execution {} no longer exists", claim.stepExecutionId(),
+                    claim.jobExecutionId());
+            queue.finish(claim.stepExecutionId(), false);
+            return;
+        }
+        log.debug("Node {} running partition {}", nodeId, stepExecution.getStepName());
+        try {
+            workerSteps.get(claim.workerStep()).execute(stepExecution);
+        } catch (JobInterruptedException e) {
+            stepExecution.setStatus(BatchStatus.STOPPED);
+            jobRepository.update(stepExecution);
+        } catch (Exception e) {
+            // Step.execute records its own failures; this is for anything that escaped it
+            stepExecution.addFailureException(e);
+            stepExecution.setStatus(BatchStatus.FAILED);
+            stepExecution.setExitStatus(ExitStatus.FAILED.addExitDescription(e));
+            jobRepository.update(stepExecution);
+        }
+        queue.finish(claim.stepExecutionId(), stepExecution.getStatus() == BatchStatus.COMPLETED);
+    }
+}
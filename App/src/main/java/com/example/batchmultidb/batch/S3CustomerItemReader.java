@@ -6,25 +6,26 @@ import org.springframework.batch.item.ExecutionContext;
 import org.springframework.batch.item.ItemStreamException;
 import org.springframework.batch.item.ItemStreamReader;
 
+import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
-import java.util.Iterator;
 
 @Slf4j
 public class S3CustomerItemReader implements ItemStreamReader<Customer> {
 
+    static final String OFFSET_KEY = "s3.offset";
+    static final String LINE_KEY = "s3.line";
+
     private final S3Client s3Client;
     private final String bucketName;
     private final String key;
 
-    private BufferedReader reader;
-    private Iterator<String> lineIterator;
+    private CsvTokenizer tokenizer;
 
     public S3CustomerItemReader(S3Client s3Client, String bucketName, String key) {
         this.s3Client = s3Client;
@@ -33,56 +34,97 @@ public class S3CustomerItemReader implements ItemStreamReader<Customer> {
     }
 
     @Override
-    public Customer read() {
-        if (lineIterator == null || !lineIterator.hasNext()) {
+    public Customer read() throws IOException {
+        if (tokenizer == null) {
             return null;
         }
 
-        String line = lineIterator.next();
-        // skip header if present
-        if (line.toLowerCase().startsWith("firstName".toLowerCase())) {
-            return read();
-        }
+        while (tokenizer.next()) {
+            // skip header if present
+            if (tokenizer.fieldStartsWithIgnoreCase(0, "firstName")) {
+                continue;
+            }
 
-        String[] parts = line.split(",");
-        if (parts.length < 3) {
-            log.warn("Skipping invalid line: {}", line);
-            return read();
-        }
+            if (tokenizer.getFieldCount() < 3) {
+                if (!tokenizer.isBlank()) {
+                    log.warn("Skipping invalid line {}: {}", tokenizer.getLineNumber(), tokenizer.getRecord());
+                }
+                continue;
+            }
 
-        return Customer.builder()
-                .firstName(parts[0].trim())
-                .lastName(parts[1].trim())
-                .email(parts[2].trim())
-                .build();
+            return Customer.builder()
+                    .firstName(tokenizer.getField(0))
+                    .lastName(tokenizer.getField(1))
+                    .email(tokenizer.getField(2))
+                    .build();
+        }
+        return null;
     }
 
     @Override
     public void open(ExecutionContext executionContext) throws ItemStreamException {
+        // on restart only fetch the bytes after the last committed line
+        long offset = executionContext.getLong(OFFSET_KEY, 0);
+        long lineNumber = executionContext.getLong(LINE_KEY, 0);
+        CompressionCodec codec = CompressionCodec.fromName(key);
+        // compressed bytes cannot be entered mid-stream: decompress from the start and skip instead
+        long rangeStart = codec.isCompressed() ? 0 : offset;
         try {
-            GetObjectRequest getObjectRequest = GetObjectRequest.builder()
-                    .bucket(bucketName)
-                    .key(key)
-                    .build();
+            if (offset > 0) {
+                log.info("Resuming S3 object s3://{}/{} at byte {} (line {})", bucketName, key, offset, lineNumber);
+            }
+            ResponseInputStream<GetObjectResponse> response = getObject(rangeStart);
+            if (!codec.isCompressed()) {
+                codec = CompressionCodec.fromContentEncoding(response.response().contentEncoding());
+                if (codec.isCompressed() && rangeStart > 0) {
+                    response.abort();
+                    rangeStart = 0;
+                    response = getObject(0);
+                }
+            }
+            if (codec.isCompressed()) {
+                log.info("Decompressing S3 object s3://{}/{} as {}", bucketName, key, codec);
+            }
 
-            InputStream is = s3Client.getObject(getObjectRequest);
-            this.reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
-            this.lineIterator = reader.lines().iterator();
+            InputStream is = codec.open(response);
+            is.skipNBytes(offset - rangeStart);
+            this.tokenizer = CsvTokenizer.stream(is, offset, lineNumber);
+        } catch (S3Exception e) {
+            if (rangeStart > 0 && e.statusCode() == 416) {
+                log.info("S3 object s3://{}/{} was already read to the end", bucketName, key);
+                this.tokenizer = null;
+                return;
+            }
+            throw new ItemStreamException("Failed to open S3 object", e);
         } catch (Exception e) {
             throw new ItemStreamException("Failed to open S3 object", e);
         }
     }
 
+    private ResponseInputStream<GetObjectResponse> getObject(long rangeStart) {
+        GetObjectRequest.Builder getObjectRequest = GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key);
+        if (rangeStart > 0) {
+            getObjectRequest.range("bytes=" + rangeStart + "-");
+        }
+        return s3Client.getObject(getObjectRequest.build());
+    }
+
     @Override
     public void update(ExecutionContext executionContext) throws ItemStreamException {
-        // no-op
+        if (tokenizer != null) {
+            executionContext.putLong(OFFSET_KEY, tokenizer.getOffset());
+            executionContext.putLong(LINE_KEY, tokenizer.getLineNumber());
+        }
     }
 
     @Override
     public void close() throws ItemStreamException {
         try {
-            if (reader != null) {
-                reader.close();
+            if (tokenizer != null) {
+                tokenizer.close();
+                tokenizer = null;
             }
         } catch (IOException e) {
             log.error("Error closing reader", e);
@@ -0,0 +1,40 @@
+package com.example.batchmultidb.batch;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+
+/**
+ * Records the outcome of each per-object worker step in the job execution context,
+ * under {@code s3.object.<key>}, so the progress of a prefix import can be read from
+ * the job repository.
+ */
+@Slf4j
+public class S3ObjectProgressListener implements StepExecutionListener {
+
+    static final String PROGRESS_KEY_PREFIX = "s3.object.";
+
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        record(stepExecution, "STARTED");
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        record(stepExecution, stepExecution.getStatus() + " read=" + stepExecution.getReadCount()
+                + " written=" + stepExecution.getWriteCount());
+        log.info("S3 object {}: {} items read, {} written, {}", objectKey(stepExecution),
+                stepExecution.getReadCount(), stepExecution.getWriteCount(), stepExecution.getStatus());
+        return null;
+    }
+
+    private static void record(StepExecution stepExecution, String progress) {
+        stepExecution.getJobExecution().getExecutionContext()
+                .putString(PROGRESS_KEY_PREFIX + objectKey(stepExecution), progress);
+    }
+
+    private static String objectKey(StepExecution stepExecution) {
+        return stepExecution.getExecutionContext().getString(S3PrefixPartitioner.OBJECT_KEY);
+    }
+}
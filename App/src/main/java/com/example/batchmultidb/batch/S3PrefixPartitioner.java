@@ -0,0 +1,66 @@
+package com.example.batchmultidb.batch;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One partition per object under an S3 prefix. Partition names are derived from the
+ * object key, so a restart maps every object back to its previous step execution and
+ * objects that already completed are skipped.
+ */
+@Slf4j
+public class S3PrefixPartitioner implements Partitioner {
+
+    public static final String OBJECT_KEY = "s3.key";
+
+    // worker step names ("<worker>:<partition>") must fit the 100 char STEP_NAME column
+    private static final int MAX_NAME_LENGTH = 60;
+
+    private final S3Client s3Client;
+    private final String bucketName;
+    private final String prefix;
+
+    public S3PrefixPartitioner(S3Client s3Client, String bucketName, String prefix) {
+        this.s3Client = s3Client;
+        this.bucketName = bucketName;
+        this.prefix = prefix;
+    }
+
+    @Override
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        Map<String, ExecutionContext> partitions = new LinkedHashMap<>();
+        long totalBytes = 0;
+        for (S3Object object : s3Client.listObjectsV2Paginator(ListObjectsV2Request.builder()
+                .bucket(bucketName)
+                .prefix(prefix)
+                .build()).contents()) {
+            if (object.key().endsWith("/") || object.size() == 0) {
+                continue; // folder markers and empty objects
+            }
+            ExecutionContext context = new ExecutionContext();
+            context.putString(OBJECT_KEY, object.key());
+            partitions.put(partitionName(object.key()), context);
+            totalBytes += object.size();
+        }
+
+        log.info("Found {} objects ({} bytes) under s3://{}/{}", partitions.size(), totalBytes, bucketName, prefix);
+        return partitions;
+    }
+
+    static String partitionName(String key) {
+        if (key.length() <= MAX_NAME_LENGTH) {
+            return key;
+        }
+        // keep the distinctive end of the key and make it unique with a hash of the whole key
+        long hash = EmailFingerprintSet.fingerprint(key);
+        return key.substring(key.length() - (MAX_NAME_LENGTH - 17)) + "#" + HexFormat.of().toHexDigits(hash);
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.batchmultidb.batch;
+
+import org.springframework.batch.item.ItemStreamException;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The bytes of an S3 object from {@code from} to its end, fetched as ranged GETs of {@code partSize}
+ * and handed out strictly in order. Parts before {@code prefetchLimit} are fetched up to
+ * {@code concurrency} at a time, so at most that many parts are buffered; past it, one part at a
+ * time as the reader gets there (e.g. to finish a record that runs past a partition's end).
+ */
+class S3RangeInputStream extends InputStream {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final S3Client s3Client;
+    private final String bucketName;
+    private final String key;
+    private final long objectSize;
+    private final long prefetchLimit;
+    private final long partSize;
+    private final int concurrency;
+    private final ExecutorService executor;
+    private final Deque<CompletableFuture<byte[]>> inFlight = new ArrayDeque<>();
+
+    private long nextFetchOffset;
+    private byte[] part = EMPTY;
+    private int partPosition;
+
+    S3RangeInputStream(S3Client s3Client, String bucketName, String key, long from, long objectSize,
+                       long prefetchLimit, long partSize, int concurrency) {
+        this.s3Client = s3Client;
+        this.bucketName = bucketName;
+        this.key = key;
+        this.objectSize = objectSize;
+        this.prefetchLimit = Math.min(prefetchLimit, objectSize);
+        this.partSize = partSize;
+        this.concurrency = concurrency;
+        this.nextFetchOffset = from;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "s3-range-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        schedule();
+    }
+
+    @Override
+    public int read() {
+        if (!ensurePart()) {
+            return -1;
+        }
+        return part[partPosition++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+        if (length == 0) {
+            return 0;
+        }
+        if (!ensurePart()) {
+            return -1;
+        }
+        int count = Math.min(length, part.length - partPosition);
+        System.arraycopy(part, partPosition, bytes, offset, count);
+        partPosition += count;
+        return count;
+    }
+
+    private boolean ensurePart() {
+        while (partPosition >= part.length) {
+            if (inFlight.isEmpty()) {
+                if (nextFetchOffset >= objectSize) {
+                    return false;
+                }
+                fetchAsync(nextFetchOffset, Math.min(nextFetchOffset + partSize, objectSize) - 1);
+            }
+            part = await(inFlight.poll());
+            partPosition = 0;
+            schedule();
+        }
+        return true;
+    }
+
+    private void schedule() {
+        while (inFlight.size() < concurrency && nextFetchOffset < prefetchLimit) {
+            fetchAsync(nextFetchOffset, Math.min(nextFetchOffset + partSize, prefetchLimit) - 1);
+        }
+    }
+
+    private void fetchAsync(long first, long last) {
+        nextFetchOffset = last + 1;
+        inFlight.add(CompletableFuture.supplyAsync(() -> fetchRange(first, last), executor));
+    }
+
+    private byte[] fetchRange(long first, long last) {
+        GetObjectRequest request = GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .range("bytes=" + first + "-" + last)
+                .build();
+        return s3Client.getObject(request, ResponseTransformer.toBytes()).asByteArrayUnsafe();
+    }
+
+    private static byte[] await(CompletableFuture<byte[]> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw new ItemStreamException("Failed to fetch S3 object range", e.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        inFlight.forEach(future -> future.cancel(true));
+        inFlight.clear();
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.batchmultidb.batch;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Splits an S3 object into byte ranges of about equal size ({@code HeadObject} size / grid size)
+ * that start on record boundaries. A quoted field may span lines, so the boundaries come from one
+ * {@link CsvTokenizer} pass over the object, fetched with ranged GETs like the import itself.
+ */
+@Slf4j
+public class S3RangePartitioner implements Partitioner {
+
+    private static final long DEFAULT_PART_SIZE = 8 * 1024 * 1024;
+    private static final int DEFAULT_CONCURRENCY = 4;
+
+    private final S3Client s3Client;
+    private final String bucketName;
+    private final String key;
+    private final long partSize;
+    private final int concurrency;
+
+    public S3RangePartitioner(S3Client s3Client, String bucketName, String key) {
+        this(s3Client, bucketName, key, DEFAULT_PART_SIZE, DEFAULT_CONCURRENCY);
+    }
+
+    public S3RangePartitioner(S3Client s3Client, String bucketName, String key, long partSize, int concurrency) {
+        this.s3Client = s3Client;
+        this.bucketName = bucketName;
+        this.key = key;
+        this.partSize = partSize;
+        this.concurrency = concurrency;
+    }
+
+    @Override
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        HeadObjectResponse head = s3Client.headObject(HeadObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .build());
+        long size = head.contentLength();
+
+        Map<String, ExecutionContext> partitions = new LinkedHashMap<>();
+        if (CompressionCodec.fromName(key).isCompressed()
+                || CompressionCodec.fromContentEncoding(head.contentEncoding()).isCompressed()) {
+            // compressed objects cannot be split into byte ranges: one partition streams the whole object
+            partitions.put(partitionName(0), rangeContext(0, Long.MAX_VALUE));
+            log.info("s3://{}/{} is compressed, importing it as a single partition", bucketName, key);
+            return partitions;
+        }
+
+        long target = Math.max(size / Math.max(gridSize, 1), 1);
+        long start = 0;
+        int index = 0;
+        if (gridSize > 1) {
+            try (CsvTokenizer tokenizer = CsvTokenizer.stream(new S3RangeInputStream(s3Client, bucketName, key,
+                    0, size, size, partSize, concurrency), 0, 0)) {
+                while (tokenizer.next()) {
+                    long offset = tokenizer.getOffset();
+                    if (offset - start >= target && offset < size) {
+                        partitions.put(partitionName(index++), rangeContext(start, offset));
+                        start = offset;
+                    }
+                }
+            } catch (IOException e) {
+                throw new ItemStreamException("Failed to partition S3 object s3://" + bucketName + "/" + key, e);
+            }
+        }
+        partitions.put(partitionName(index), rangeContext(start, size));
+
+        log.info("Split s3://{}/{} ({} bytes) into {} partitions", bucketName, key, size, partitions.size());
+        return partitions;
+    }
+
+    private static String partitionName(int index) {
+        return String.format("partition%04d", index);
+    }
+
+    private static ExecutionContext rangeContext(long start, long end) {
+        ExecutionContext context = new ExecutionContext();
+        context.putLong(CsvLinePartitioner.START_OFFSET_KEY, start);
+        context.putLong(CsvLinePartitioner.END_OFFSET_KEY, end);
+        return context;
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.batchmultidb.batch;
+
+import com.example.batchmultidb.domain.Customer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+
+import java.io.IOException;
+
+/**
+ * Reads a CSV object with several concurrent ranged GETs instead of one stream.
+ * Parts are consumed strictly in order through {@link S3RangeInputStream}, so at most
+ * {@code concurrency} parts are buffered at any time, and parsed by the same
+ * {@link CsvTokenizer} as {@link S3CustomerItemReader}, records cut at part edges included.
+ * <p>
+ * When given a byte range, both offsets must sit on record starts (see
+ * {@link S3RangePartitioner}): the reader owns the records starting inside the range and
+ * completes the last one past its end.
+ */
+@Slf4j
+public class S3RangedCustomerItemReader implements ItemStreamReader<Customer> {
+
+    static final String OFFSET_KEY = "s3.offset";
+    static final String LINE_KEY = "s3.line";
+
+    private final S3Client s3Client;
+    private final String bucketName;
+    private final String key;
+    private final long partSize;
+    private final int concurrency;
+    private final long startOffset;
+    private final long endOffset;
+
+    private CsvTokenizer tokenizer;
+
+    public S3RangedCustomerItemReader(S3Client s3Client, String bucketName, String key,
+                                      long partSize, int concurrency) {
+        this(s3Client, bucketName, key, partSize, concurrency, 0, Long.MAX_VALUE);
+    }
+
+    public S3RangedCustomerItemReader(S3Client s3Client, String bucketName, String key,
+                                      long partSize, int concurrency, long startOffset, long endOffset) {
+        this.s3Client = s3Client;
+        this.bucketName = bucketName;
+        this.key = key;
+        this.partSize = partSize;
+        this.concurrency = concurrency;
+        this.startOffset = startOffset;
+        this.endOffset = endOffset;
+    }
+
+    @Override
+    public Customer read() throws IOException {
+        if (tokenizer == null) {
+            return null;
+        }
+
+        while (tokenizer.getOffset() < endOffset && tokenizer.next()) {
+            // skip header if present
+            if (tokenizer.fieldStartsWithIgnoreCase(0, "firstName")) {
+                continue;
+            }
+
+            if (tokenizer.getFieldCount() < 3) {
+                if (!tokenizer.isBlank()) {
+                    log.warn("Skipping invalid line {}: {}", tokenizer.getLineNumber(), tokenizer.getRecord());
+                }
+                continue;
+            }
+
+            return Customer.builder()
+                    .firstName(tokenizer.getField(0))
+                    .lastName(tokenizer.getField(1))
+                    .email(tokenizer.getField(2))
+                    .build();
+        }
+        return null;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        HeadObjectResponse head;
+        try {
+            head = s3Client.headObject(HeadObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .build());
+        } catch (Exception e) {
+            throw new ItemStreamException("Failed to open S3 object", e);
+        }
+        if (CompressionCodec.fromName(key).isCompressed()
+                || CompressionCodec.fromContentEncoding(head.contentEncoding()).isCompressed()) {
+            throw new ItemStreamException("S3 object s3://" + bucketName + "/" + key
+                    + " is compressed and cannot be read by byte ranges");
+        }
+        long objectSize = head.contentLength();
+
+        // restart: the saved offset is the first byte of the next uncommitted record
+        long offset = Math.min(executionContext.getLong(OFFSET_KEY, startOffset), objectSize);
+        long lineNumber = executionContext.getLong(LINE_KEY, 0);
+        if (executionContext.containsKey(OFFSET_KEY)) {
+            log.info("Resuming S3 object s3://{}/{} at byte {} (line {})", bucketName, key, offset, lineNumber);
+        }
+        try {
+            this.tokenizer = CsvTokenizer.stream(new S3RangeInputStream(s3Client, bucketName, key, offset,
+                    objectSize, endOffset, partSize, concurrency), offset, lineNumber);
+        } catch (IOException e) {
+            throw new ItemStreamException("Failed to open S3 object", e);
+        }
+        log.info("Opened S3 object s3://{}/{} ({} bytes) range [{}, {}) with {} parallel ranged GETs of {} bytes",
+                bucketName, key, objectSize, offset, Math.min(endOffset, objectSize), concurrency, partSize);
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        if (tokenizer != null) {
+            executionContext.putLong(OFFSET_KEY, tokenizer.getOffset());
+            executionContext.putLong(LINE_KEY, tokenizer.getLineNumber());
+        }
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        try {
+            if (tokenizer != null) {
+                tokenizer.close();
+                tokenizer = null;
+            }
+        } catch (IOException e) {
+            log.error("Error closing reader", e);
+        }
+    }
+}
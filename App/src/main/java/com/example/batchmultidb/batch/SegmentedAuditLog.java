@@ -0,0 +1,318 @@
+package com.example.batchmultidb.batch;
+
+import com.example.batchmultidb.domain.Customer;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only {@code CUSTOMER_AUDIT} trail in memory-mapped segment files, an alternative to
+ * inserting audit rows into H2 ({@code batch.audit.sink=log}). Every {@link #append} is one
+ * sequential write followed by a single fsync of the bytes it added, however many rows it holds.
+ * <p>
+ * A segment is named after the sequence number of its first entry and rolls over when the next
+ * entry does not fit in {@code segmentSize}; closed segments older than {@code retention} are
+ * deleted. Entries are {@code [length][crc32][epoch millis][first name][last name][email]} with
+ * length-prefixed UTF-8 strings, and a zero length marks the end of a segment. On open, a torn
+ * last write (bad checksum) is cut off. {@link #scan} and {@link #replay} read the log back,
+ * e.g. to rebuild the {@code CUSTOMER_AUDIT} table.
+ */
+@Slf4j
+public class SegmentedAuditLog implements CustomerAuditSink, AutoCloseable {
+
+    public record Entry(long sequence, Instant loggedAt, String firstName, String lastName, String email) {
+    }
+
+    private static final String SEGMENT_PREFIX = "audit-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int ENTRY_HEADER_SIZE = 8;
+    private static final long MIN_SEGMENT_SIZE = 4096;
+
+    private final Path directory;
+    private final long segmentSize;
+    private final Duration retention;
+    private final Timer writeTimer = TimedCustomerItemWriter.storeWriteTimer("AUDIT_LOG", "CUSTOMER_AUDIT");
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private Path segment;
+    private long nextSequence;
+    private int forcedPosition;
+
+    public SegmentedAuditLog(Path directory, long segmentSize, Duration retention) throws IOException {
+        if (segmentSize < MIN_SEGMENT_SIZE || segmentSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Audit log segment size must be between " + MIN_SEGMENT_SIZE
+                    + " bytes and 2 GB, was " + segmentSize);
+        }
+        this.directory = Files.createDirectories(directory);
+        this.segmentSize = segmentSize;
+        this.retention = retention;
+
+        List<Path> segments = segments();
+        if (segments.isEmpty()) {
+            openSegment(0);
+        } else {
+            recover(segments.get(segments.size() - 1));
+        }
+        deleteExpiredSegments();
+        log.info("Audit log {} opened at sequence {} ({} byte segments, retention {})",
+                directory, nextSequence, segmentSize, retention);
+    }
+
+    @Override
+    public synchronized void append(List<? extends Customer> customers) {
+        if (customers.isEmpty()) {
+            return;
+        }
+        writeTimer.record(() -> {
+            long loggedAt = System.currentTimeMillis();
+            for (Customer customer : customers) {
+                byte[] payload = encode(loggedAt, customer);
+                if (ENTRY_HEADER_SIZE + payload.length + 4 > segmentSize) {
+                    throw new IllegalArgumentException("Audit entry of " + payload.length
+                            + " bytes does not fit in a " + segmentSize + " byte segment");
+                }
+                if (buffer.remaining() < ENTRY_HEADER_SIZE + payload.length + 4) {
+                    rollOver();
+                }
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                buffer.putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+                nextSequence++;
+            }
+            force();
+        });
+    }
+
+    /**
+     * Visits the entries from sequence {@code fromSequence} on, in order, while {@code visitor}
+     * returns true. Appends made during the scan are not visited.
+     */
+    public void scan(long fromSequence, Predicate<Entry> visitor) throws IOException {
+        List<Path> segments;
+        Path active;
+        int activeEnd;
+        synchronized (this) {
+            segments = segments();
+            active = segment;
+            activeEnd = buffer.position();
+        }
+        for (int i = 0; i < segments.size(); i++) {
+            if (i + 1 < segments.size() && firstSequence(segments.get(i + 1)) <= fromSequence) {
+                continue; // every entry of this segment is before fromSequence
+            }
+            Path path = segments.get(i);
+            try (FileChannel readChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+                ByteBuffer entries = readChannel.map(FileChannel.MapMode.READ_ONLY, 0, readChannel.size());
+                if (path.equals(active)) {
+                    entries.limit(activeEnd);
+                }
+                long sequence = firstSequence(path);
+                for (Entry entry; (entry = readEntry(entries, sequence)) != null; sequence++) {
+                    if (sequence >= fromSequence && !visitor.test(entry)) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Appends every logged entry to {@code target}, {@code batchSize} at a time; returns the number of entries.
+     */
+    public long replay(CustomerAuditSink target, int batchSize) throws IOException {
+        List<Customer> batch = new ArrayList<>(batchSize);
+        long[] replayed = {0};
+        scan(0, entry -> {
+            batch.add(Customer.builder()
+                    .firstName(entry.firstName())
+                    .lastName(entry.lastName())
+                    .email(entry.email())
+                    .build());
+            if (batch.size() == batchSize) {
+                target.append(batch);
+                replayed[0] += batch.size();
+                batch.clear();
+            }
+            return true;
+        });
+        if (!batch.isEmpty()) {
+            target.append(batch);
+            replayed[0] += batch.size();
+        }
+        target.flush();
+        return replayed[0];
+    }
+
+    public synchronized long nextSequence() {
+        return nextSequence;
+    }
+
+    /**
+     * Sequence of the oldest entry still on disk: 0 until a segment has expired, after which
+     * {@link #scan} and {@link #replay} no longer see the entries before it.
+     */
+    public synchronized long oldestSequence() throws IOException {
+        return firstSequence(segments().get(0));
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    private void force() {
+        int position = buffer.position();
+        if (position > forcedPosition) {
+            buffer.force(forcedPosition, position - forcedPosition);
+            forcedPosition = position;
+        }
+    }
+
+    private void rollOver() {
+        try {
+            force();
+            channel.close();
+            openSegment(nextSequence);
+            deleteExpiredSegments();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not roll over audit log " + directory, e);
+        }
+    }
+
+    private void openSegment(long firstSequence) throws IOException {
+        segment = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+        channel = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        forcedPosition = 0;
+        nextSequence = firstSequence;
+        log.debug("Audit log segment {} opened", segment.getFileName());
+    }
+
+    private void recover(Path last) throws IOException {
+        openSegment(firstSequence(last));
+        while (readEntry(buffer, nextSequence) != null) {
+            nextSequence++;
+        }
+        int end = buffer.position();
+        // whatever follows the last intact entry is a torn write: zero it so it never reappears
+        boolean torn = false;
+        for (int i = end; i < buffer.limit(); i++) {
+            if (buffer.get(i) != 0) {
+                buffer.put(i, (byte) 0);
+                torn = true;
+            }
+        }
+        buffer.position(end);
+        if (torn) {
+            buffer.force();
+            log.warn("Audit log segment {} had a torn write after entry {}, cut off", last.getFileName(),
+                    nextSequence - 1);
+        }
+        forcedPosition = end;
+    }
+
+    private void deleteExpiredSegments() throws IOException {
+        Instant cutoff = Instant.now().minus(retention);
+        for (Path path : segments()) {
+            if (!path.equals(segment) && Files.getLastModifiedTime(path).toInstant().isBefore(cutoff)) {
+                Files.deleteIfExists(path);
+                log.info("Deleted audit log segment {} (older than {})", path.getFileName(), retention);
+            }
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static long firstSequence(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * The entry at the buffer's position, advancing past it; null, leaving the position unchanged,
+     * at the end of the segment or at an entry that is not intact.
+     */
+    private static Entry readEntry(ByteBuffer entries, long sequence) {
+        int start = entries.position();
+        if (entries.remaining() < ENTRY_HEADER_SIZE) {
+            return null;
+        }
+        int length = entries.getInt();
+        int checksum = entries.getInt();
+        if (length <= 0 || length > entries.remaining()) {
+            entries.position(start);
+            return null;
+        }
+        byte[] payload = new byte[length];
+        entries.get(payload);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        if ((int) crc.getValue() != checksum) {
+            entries.position(start);
+            return null;
+        }
+        try {
+            ByteBuffer fields = ByteBuffer.wrap(payload);
+            return new Entry(sequence, Instant.ofEpochMilli(fields.getLong()),
+                    readString(fields), readString(fields), readString(fields));
+        } catch (BufferUnderflowException e) {
+            entries.position(start);
+            return null;
+        }
+    }
+
+    private static byte[] encode(long loggedAt, Customer customer) {
+        byte[] firstName = bytes(customer.getFirstName());
+        byte[] lastName = bytes(customer.getLastName());
+        byte[] email = bytes(customer.getEmail());
+        return ByteBuffer.allocate(8 + 6 + firstName.length + lastName.length + email.length)
+                .putLong(loggedAt)
+                .putShort((short) firstName.length).put(firstName)
+                .putShort((short) lastName.length).put(lastName)
+                .putShort((short) email.length).put(email)
+                .array();
+    }
+
+    private static byte[] bytes(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("Audit log fields are limited to 65535 bytes, got " + bytes.length);
+        }
+        return bytes;
+    }
+
+    private static String readString(ByteBuffer fields) {
+        byte[] bytes = new byte[Short.toUnsignedInt(fields.getShort())];
+        fields.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.batchmultidb.batch;
+
+import com.example.batchmultidb.datasource.SequenceIdAllocator;
+import com.example.batchmultidb.datasource.ShardRouter;
+import com.example.batchmultidb.domain.Customer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ItemWriter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Splits each chunk by {@link ShardRouter#shardOf shard} and merges every share into its shard
+ * in parallel, with one {@link MergeCustomerItemWriter} per shard. IDs come from the shared
+ * {@code CUSTOMER_SEQ} allocator, so they stay unique across shards.
+ * <p>
+ * Shard writes commit on their own connections, outside the chunk transaction, so a failed
+ * chunk may leave some shards written; the retried or restarted chunk merges them again,
+ * which is why sharding always uses the MERGE strategy.
+ */
+@Slf4j
+public class ShardedCustomerItemWriter implements ItemWriter<Customer> {
+
+    private final ShardRouter shards;
+    private final List<MergeCustomerItemWriter> shardWriters = new ArrayList<>();
+
+    public ShardedCustomerItemWriter(ShardRouter shards, SequenceIdAllocator idAllocator) {
+        this.shards = shards;
+        for (int shard = 0; shard < shards.shardCount(); shard++) {
+            shardWriters.add(new MergeCustomerItemWriter(shards.getJdbcTemplate(shard), idAllocator, "shard " + shard));
+        }
+    }
+
+    @Override
+    public void write(Chunk<? extends Customer> chunk) throws Exception {
+        if (chunk == null || chunk.isEmpty()) {
+            return;
+        }
+        Map<Integer, Chunk<Customer>> byShard = new TreeMap<>();
+        for (Customer customer : chunk) {
+            byShard.computeIfAbsent(shards.shardOf(customer.getEmail()), shard -> new Chunk<>()).add(customer);
+        }
+        log.debug("Writing {} customers to {} of {} shards", chunk.size(), byShard.size(), shards.shardCount());
+        shards.forEachShard(byShard, (shard, customers) -> shardWriters.get(shard).write(customers));
+    }
+}
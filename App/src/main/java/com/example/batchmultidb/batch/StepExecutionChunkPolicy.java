@@ -0,0 +1,102 @@
+package com.example.batchmultidb.batch;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.ItemWriteListener;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.repeat.CompletionPolicy;
+import org.springframework.batch.repeat.RepeatContext;
+import org.springframework.batch.repeat.RepeatStatus;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Gives every execution of a step its own {@link AdaptiveChunkCompletionPolicy}, so partitions of one
+ * worker step running on different threads (or concurrent jobs) size their chunks on their own
+ * latency. Policies are created in {@code beforeStep} and dropped in {@code afterStep}; the
+ * {@code batch.chunk.size} gauge reports the mean size over the running executions.
+ * <p>
+ * Must also be registered as the step's {@link StepExecutionListener} and {@link ItemWriteListener}.
+ */
+public class StepExecutionChunkPolicy implements CompletionPolicy, StepExecutionListener, ItemWriteListener<Object> {
+
+    private final Supplier<AdaptiveChunkCompletionPolicy> policyFactory;
+    private final int initialSize;
+    private final Map<Long, AdaptiveChunkCompletionPolicy> policies = new ConcurrentHashMap<>();
+
+    public StepExecutionChunkPolicy(String stepName, int initialSize,
+                                    Supplier<AdaptiveChunkCompletionPolicy> policyFactory) {
+        this.policyFactory = policyFactory;
+        this.initialSize = initialSize;
+        Gauge.builder("batch.chunk.size", this, StepExecutionChunkPolicy::meanChunkSize)
+                .tag("step", stepName)
+                .description("Current adaptive chunk size")
+                .register(Metrics.globalRegistry);
+    }
+
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        policies.put(stepExecution.getId(), policyFactory.get());
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        policies.remove(stepExecution.getId());
+        return null;
+    }
+
+    @Override
+    public RepeatContext start(RepeatContext parent) {
+        return policy().start(parent);
+    }
+
+    @Override
+    public boolean isComplete(RepeatContext context, RepeatStatus result) {
+        return policy().isComplete(context, result);
+    }
+
+    @Override
+    public boolean isComplete(RepeatContext context) {
+        return policy().isComplete(context);
+    }
+
+    @Override
+    public void update(RepeatContext context) {
+        policy().update(context);
+    }
+
+    @Override
+    public void beforeWrite(Chunk<?> items) {
+        policy().beforeWrite(items);
+    }
+
+    @Override
+    public void afterWrite(Chunk<?> items) {
+        policy().afterWrite(items);
+    }
+
+    double meanChunkSize() {
+        return policies.values().stream()
+                .mapToInt(AdaptiveChunkCompletionPolicy::getChunkSize)
+                .average()
+                .orElse(initialSize);
+    }
+
+    private AdaptiveChunkCompletionPolicy policy() {
+        StepContext context = StepSynchronizationManager.getContext();
+        AdaptiveChunkCompletionPolicy policy = context == null
+                ? null : policies.get(context.getStepExecution().getId());
+        if (policy == null) {
+            throw new IllegalStateException("No adaptive chunk policy for the current step execution;"
+                    + " register this policy as a StepExecutionListener of the step");
+        }
+        return policy;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.batchmultidb.batch;
+
+import com.example.batchmultidb.datasource.DataStoreType;
+import com.example.batchmultidb.domain.Customer;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ItemWriter;
+
+/**
+ * Times every chunk written by the delegate as {@code batch.store.write}, tagged with
+ * the target {@link DataStoreType} and table.
+ */
+public class TimedCustomerItemWriter implements ItemWriter<Customer> {
+
+    private final ItemWriter<Customer> delegate;
+    private final Timer timer;
+
+    public TimedCustomerItemWriter(ItemWriter<Customer> delegate, DataStoreType store) {
+        this.delegate = delegate;
+        this.timer = storeWriteTimer(store, "CUSTOMER");
+    }
+
+    @Override
+    public void write(Chunk<? extends Customer> chunk) throws Exception {
+        Timer.Sample sample = Timer.start();
+        try {
+            delegate.write(chunk);
+        } finally {
+            sample.stop(timer);
+        }
+    }
+
+    static Timer storeWriteTimer(DataStoreType store, String table) {
+        return storeWriteTimer(store.name(), table);
+    }
+
+    static Timer storeWriteTimer(String store, String table) {
+        return Timer.builder("batch.store.write")
+                .tag("store", store)
+                .tag("table", table)
+                .description("Time spent writing one batch of rows to a data store")
+                .register(Metrics.globalRegistry);
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.batchmultidb.batch;
+
+/**
+ * How the import writers persist a chunk of customers ({@code batch.writer.strategy}).
+ */
+public enum WriteStrategy {
+
+    /** {@code saveAll} through the JPA repository. */
+    JPA,
+
+    /** One {@code JdbcTemplate.batchUpdate} per chunk with sequence-pooled IDs. */
+    JDBC_BATCH,
+
+    /** One set-based {@code MERGE} per chunk keyed on {@code EMAIL}; safe to re-run. */
+    MERGE
+}
@@ -2,12 +2,18 @@ package com.example.batchmultidb.config;
 
 import com.example.batchmultidb.batch.*;
 import com.example.batchmultidb.datasource.ConnectionFactory;
+import com.example.batchmultidb.datasource.CustomerSequenceMigration;
+import com.example.batchmultidb.datasource.DataStoreType;
+import com.example.batchmultidb.datasource.SequenceIdAllocator;
+import com.example.batchmultidb.datasource.Workload;
 import com.example.batchmultidb.domain.Customer;
+import com.example.batchmultidb.service.CustomerCacheInvalidator;
 import com.example.batchmultidb.repository.CustomerRepository;
 import com.example.batchmultidb.repository.oracle.CustomerOracleRepository;
 import org.springframework.batch.core.Job;
 import org.springframework.batch.core.Step;
 import org.springframework.batch.core.configuration.annotation.EnableBatchProcessing;
+import org.springframework.batch.core.explore.JobExplorer;
 import org.springframework.batch.core.job.builder.JobBuilder;
 import org.springframework.batch.core.repository.JobRepository;
 import org.springframework.batch.core.step.builder.StepBuilder;
@@ -15,15 +21,26 @@ import org.springframework.batch.item.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
 import software.amazon.awssdk.services.s3.S3Client;
 import lombok.extern.slf4j.Slf4j;
 
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
 @Configuration
 @EnableBatchProcessing
 @Slf4j
@@ -35,17 +52,43 @@ public class BatchConfig {
     @Value("${aws.s3.key}")
     private String key;
 
+    @Value("${aws.s3.ranged-read.enabled:false}")
+    private boolean rangedReadEnabled;
+
+    @Value("${aws.s3.ranged-read.part-size:8MB}")
+    private DataSize rangedReadPartSize;
+
+    @Value("${aws.s3.ranged-read.concurrency:8}")
+    private int rangedReadConcurrency;
+
     @Value("${local.csv.path:classpath:data/customers.csv}")
     private String localCsvPath;
 
+    @Value("${batch.writer.strategy:jpa}")
+    private WriteStrategy writeStrategy;
+
+    @Value("${batch.sharding.enabled:false}")
+    private boolean sharded;
+
     @Autowired
     private ResourceLoader resourceLoader;
 
+    @Autowired
+    private ConnectionFactory connectionFactory;
+
     // ============ S3 Mode Beans ============
 
     @Bean
-    @ConditionalOnProperty(name = "batch.mode", havingValue = "s3")
+    @ConditionalOnExpression("'${batch.mode:local}'=='s3' and !${batch.partition.enabled:false} and '${aws.s3.prefix:}'==''")
     public ItemStreamReader<Customer> s3CustomerItemReader(S3Client s3Client) {
+        if (rangedReadEnabled && CompressionCodec.of(s3Client, bucketName, key).isCompressed()) {
+            log.info("s3://{}/{} is compressed, ignoring aws.s3.ranged-read", bucketName, key);
+        } else if (rangedReadEnabled) {
+            log.info("Using S3 ranged item reader with bucket: {} and key: {} ({} x {})",
+                    bucketName, key, rangedReadConcurrency, rangedReadPartSize);
+            return new S3RangedCustomerItemReader(s3Client, bucketName, key,
+                    rangedReadPartSize.toBytes(), rangedReadConcurrency);
+        }
         log.info("Using S3 item reader with bucket: {} and key: {}", bucketName, key);
         return new S3CustomerItemReader(s3Client, bucketName, key);
     }
@@ -54,37 +97,78 @@ public class BatchConfig {
     @ConditionalOnProperty(name = "batch.mode", havingValue = "s3")
     public ItemWriter<Customer> s3CustomerItemWriter(
             CustomerOracleRepository oracleRepository,
-            ConnectionFactory connectionFactory) {
-        log.info("Using S3 multi-DB item writer (Oracle + H2)");
-        return new MultiDbCustomerItemWriter(oracleRepository, connectionFactory);
+            @Qualifier("oracleJdbcTemplate") JdbcTemplate oracleJdbcTemplate,
+            SequenceIdAllocator customerIdAllocator,
+            @Qualifier("customerAuditSink") CustomerAuditSink customerAuditSink,
+            Optional<CustomerFingerprintIndex> customerFingerprintIndex) {
+        log.info("Using S3 multi-DB item writer (Oracle + H2), Oracle write strategy: {}", writeStrategy);
+        ItemWriter<Customer> oracleWriter = customerWriter(new OracleDbCustomerItemWriter(oracleRepository),
+                oracleJdbcTemplate, customerIdAllocator, DataStoreType.ORACLE, customerFingerprintIndex);
+        return new MultiDbCustomerItemWriter(oracleWriter, customerAuditSink);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "batch.mode", havingValue = "s3")
+    public CustomerAuditSink customerAuditSink(ConnectionFactory connectionFactory,
+                                               Optional<SegmentedAuditLog> customerAuditLog,
+                                               @Value("${batch.audit.async:true}") boolean async,
+                                               @Value("${batch.audit.queue-capacity:10000}") int queueCapacity,
+                                               @Value("${batch.audit.batch-size:1000}") int batchSize) {
+        CustomerAuditSink sink = customerAuditLog.isPresent() ? customerAuditLog.get() : new JdbcCustomerAuditSink(
+                connectionFactory.getJdbcTemplate(DataStoreType.H2, Workload.AUDIT));
+        if (!async) {
+            return sink;
+        }
+        log.info("Using async {} audit sink (queue capacity {}, group commits of up to {} rows)",
+                customerAuditLog.isPresent() ? "log" : "H2", queueCapacity, batchSize);
+        return new AsyncCustomerAuditSink(sink, queueCapacity, batchSize);
+    }
+
+    @Bean
+    @ConditionalOnExpression("'${batch.mode:local}'=='s3' and '${batch.audit.sink:table}'=='log'")
+    public SegmentedAuditLog customerAuditLog(@Value("${batch.audit.log.directory:target/audit-log}") String directory,
+                                              @Value("${batch.audit.log.segment-size:64MB}") DataSize segmentSize,
+                                              @Value("${batch.audit.log.retention:30d}") Duration retention)
+            throws IOException {
+        return new SegmentedAuditLog(Path.of(directory), segmentSize.toBytes(), retention);
     }
 
     @Bean(name = "oracleCustomerItemWriter")
     @ConditionalOnProperty(name = "batch.mode", havingValue = "oracle")
-    public ItemWriter<Customer> oracleCustomerItemWriter(CustomerOracleRepository oracleRepository) {
-        log.info("Using Oracle-only item writer");
-        return new OracleDbCustomerItemWriter(oracleRepository);
+    public ItemWriter<Customer> oracleCustomerItemWriter(
+            CustomerOracleRepository oracleRepository,
+            @Qualifier("oracleJdbcTemplate") JdbcTemplate oracleJdbcTemplate,
+            SequenceIdAllocator customerIdAllocator,
+            Optional<CustomerFingerprintIndex> customerFingerprintIndex) {
+        log.info("Using Oracle-only item writer, write strategy: {}", writeStrategy);
+        return customerWriter(new OracleDbCustomerItemWriter(oracleRepository),
+                oracleJdbcTemplate, customerIdAllocator, DataStoreType.ORACLE, customerFingerprintIndex);
     }
 
     @Bean(name = "s3CustomerImportStep")
-    @ConditionalOnProperty(name = "batch.mode", havingValue = "s3")
+    @ConditionalOnExpression("'${batch.mode:local}'=='s3' and !${batch.partition.enabled:false} and '${aws.s3.prefix:}'==''")
     public Step s3CustomerImportStep(JobRepository jobRepository,
                                      PlatformTransactionManager transactionManager,
+                                     ChunkSizing chunkSizing,
+                                     CustomerCacheInvalidator customerCacheInvalidator,
+                                     ChunkMetricsListener chunkMetricsListener,
                                      ItemStreamReader<Customer> reader,
                                      ItemProcessor<Customer, Customer> processor,
                                      ItemWriter<Customer> writer) {
-        return new StepBuilder("s3CustomerImportStep", jobRepository)
-                .<Customer, Customer>chunk(100, transactionManager)
+        return chunkSizing.<Customer, Customer>chunk(new StepBuilder("s3CustomerImportStep", jobRepository),
+                        "s3CustomerImportStep", transactionManager)
                 .reader(reader)
                 .processor(processor)
                 .writer(writer)
+                .listener(customerCacheInvalidator)
+                .listener(chunkMetricsListener)
                 .build();
     }
 
     @Bean(name = "s3ImportCustomersJob")
     @ConditionalOnProperty(name = "batch.mode", havingValue = "s3")
     public Job s3ImportCustomersJob(JobRepository jobRepository,
-                                    Step s3CustomerImportStep) {
+                                    @Qualifier("s3CustomerImportStep") Step s3CustomerImportStep) {
         return new JobBuilder("s3ImportCustomersJob", jobRepository)
                 .start(s3CustomerImportStep)
                 .build();
@@ -93,7 +177,7 @@ public class BatchConfig {
     // ============ Local CSV Mode Beans ============
 
     @Bean
-    @ConditionalOnProperty(name = "batch.mode", havingValue = "local", matchIfMissing = true)
+    @ConditionalOnExpression("'${batch.mode:local}'=='local' and !${batch.partition.enabled:false}")
     public ItemStreamReader<Customer> localCsvCustomerItemReader() {
         Resource resource = resourceLoader.getResource(localCsvPath);
         log.info("Using local CSV item reader from: {}", localCsvPath);
@@ -110,23 +194,33 @@ public class BatchConfig {
 
     @Bean
     @ConditionalOnProperty(name = "batch.mode", havingValue = "local", matchIfMissing = true)
-    public ItemWriter<Customer> localDbCustomerItemWriter(CustomerRepository customerRepository) {
-        log.info("Using local DB item writer (H2 only)");
-        return new LocalDbCustomerItemWriter(customerRepository);
+    public ItemWriter<Customer> localDbCustomerItemWriter(
+            CustomerRepository customerRepository,
+            @Qualifier("h2JdbcTemplate") JdbcTemplate h2JdbcTemplate,
+            SequenceIdAllocator customerIdAllocator,
+            Optional<CustomerFingerprintIndex> customerFingerprintIndex) {
+        log.info("Using local DB item writer (H2 only), write strategy: {}", writeStrategy);
+        return customerWriter(new LocalDbCustomerItemWriter(customerRepository),
+                h2JdbcTemplate, customerIdAllocator, DataStoreType.H2, customerFingerprintIndex);
     }
 
     @Bean(name = "localCustomerImportStep")
-    @ConditionalOnProperty(name = "batch.mode", havingValue = "local", matchIfMissing = true)
+    @ConditionalOnExpression("'${batch.mode:local}'=='local' and !${batch.partition.enabled:false}")
     public Step localCustomerImportStep(JobRepository jobRepository,
                                         PlatformTransactionManager transactionManager,
+                                        ChunkSizing chunkSizing,
+                                        CustomerCacheInvalidator customerCacheInvalidator,
+                                        ChunkMetricsListener chunkMetricsListener,
                                         ItemStreamReader<Customer> reader,
                                         ItemProcessor<Customer, Customer> processor,
                                         ItemWriter<Customer> writer) {
-        return new StepBuilder("localCustomerImportStep", jobRepository)
-                .<Customer, Customer>chunk(100, transactionManager)
+        return chunkSizing.<Customer, Customer>chunk(new StepBuilder("localCustomerImportStep", jobRepository),
+                        "localCustomerImportStep", transactionManager)
                 .reader(reader)
                 .processor(processor)
                 .writer(writer)
+                .listener(customerCacheInvalidator)
+                .listener(chunkMetricsListener)
                 .build();
     }
 
@@ -134,21 +228,26 @@ public class BatchConfig {
     @ConditionalOnProperty(name = "batch.mode", havingValue = "oracle")
     public Step oracleCustomerImportStep(JobRepository jobRepository,
                                          PlatformTransactionManager transactionManager,
+                                         ChunkSizing chunkSizing,
+                                         CustomerCacheInvalidator customerCacheInvalidator,
+                                         ChunkMetricsListener chunkMetricsListener,
                                          ItemStreamReader<Customer> reader,
                                          ItemProcessor<Customer, Customer> processor,
                                          @Qualifier("oracleCustomerItemWriter") ItemWriter<Customer> writer) {
-        return new StepBuilder("oracleCustomerImportStep", jobRepository)
-                .<Customer, Customer>chunk(100, transactionManager)
+        return chunkSizing.<Customer, Customer>chunk(new StepBuilder("oracleCustomerImportStep", jobRepository),
+                        "oracleCustomerImportStep", transactionManager)
                 .reader(reader)
                 .processor(processor)
                 .writer(writer)
+                .listener(customerCacheInvalidator)
+                .listener(chunkMetricsListener)
                 .build();
     }
 
     @Bean(name = "localImportCustomersJob")
     @ConditionalOnProperty(name = "batch.mode", havingValue = "local", matchIfMissing = true)
     public Job localImportCustomersJob(JobRepository jobRepository,
-                                       Step localCustomerImportStep) {
+                                       @Qualifier("localCustomerImportStep") Step localCustomerImportStep) {
         return new JobBuilder("localImportCustomersJob", jobRepository)
                 .start(localCustomerImportStep)
                 .build();
@@ -165,8 +264,119 @@ public class BatchConfig {
 
     // ============ Shared Beans ============
 
+    private ItemWriter<Customer> customerWriter(ItemWriter<Customer> jpaWriter,
+                                                JdbcTemplate jdbcTemplate,
+                                                SequenceIdAllocator idAllocator,
+                                                DataStoreType store,
+                                                Optional<CustomerFingerprintIndex> fingerprintIndex) {
+        if (sharded) {
+            if (writeStrategy != WriteStrategy.MERGE) {
+                log.warn("CUSTOMER is sharded: writing with MERGE instead of {}", writeStrategy);
+            }
+            return new TimedCustomerItemWriter(delta(new ShardedCustomerItemWriter(
+                    connectionFactory.getShardRouter(DataStoreType.SHARDED, Workload.BATCH_WRITE), idAllocator),
+                    fingerprintIndex), DataStoreType.SHARDED);
+        }
+        // delta imports write inserted and changed rows alike, which only MERGE does
+        WriteStrategy strategy = fingerprintIndex.isPresent() ? WriteStrategy.MERGE : writeStrategy;
+        if (strategy != writeStrategy) {
+            log.warn("Delta import: writing with MERGE instead of {}", writeStrategy);
+        }
+        String targetName = store == DataStoreType.ORACLE ? "Oracle" : "H2";
+        ItemWriter<Customer> writer = switch (strategy) {
+            case JPA -> jpaWriter;
+            case JDBC_BATCH -> new JdbcBatchCustomerItemWriter(jdbcTemplate, idAllocator, targetName);
+            case MERGE -> new MergeCustomerItemWriter(jdbcTemplate, idAllocator, targetName);
+        };
+        return new TimedCustomerItemWriter(delta(writer, fingerprintIndex), store);
+    }
+
+    private static ItemWriter<Customer> delta(ItemWriter<Customer> writer,
+                                              Optional<CustomerFingerprintIndex> fingerprintIndex) {
+        return fingerprintIndex.<ItemWriter<Customer>>map(index -> new DeltaCustomerItemWriter(writer, index))
+                .orElse(writer);
+    }
+
+    @Bean
+    public ItemProcessor<Customer, Customer> customerItemProcessor(
+            @Qualifier("dataSource") DataSource dataSource,
+            Optional<CustomerFingerprintIndex> customerFingerprintIndex,
+            @Value("${batch.dedupe.enabled:true}") boolean dedupeEnabled) {
+        if (customerFingerprintIndex.isPresent()) {
+            log.info("Delta import: dropping rows whose content fingerprint is unchanged before the writer");
+            return new DeltaFilterProcessor(new CustomerItemProcessor(), customerFingerprintIndex.get());
+        }
+        if (!dedupeEnabled || writeStrategy == WriteStrategy.MERGE || sharded) {
+            // MERGE (always used when sharded) turns repeated emails into updates, so they must reach the writer
+            return new CustomerItemProcessor();
+        }
+        log.info("Filtering duplicate emails before the writer");
+        return new DuplicateEmailFilterProcessor(new CustomerItemProcessor(), dataSource);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "batch.delta.enabled", havingValue = "true")
+    public CustomerFingerprintIndex customerFingerprintIndex(@Qualifier("dataSource") DataSource dataSource) {
+        return new CustomerFingerprintIndex(dataSource);
+    }
+
+    @Bean
+    public SequenceIdAllocator customerIdAllocator(@Qualifier("dataSource") DataSource dataSource) {
+        return new SequenceIdAllocator(new JdbcTemplate(dataSource), Customer.ID_SEQUENCE, Customer.ID_ALLOCATION_SIZE);
+    }
+
+    @Bean
+    public CustomerSequenceMigration customerSequenceMigration(@Qualifier("dataSource") DataSource dataSource) {
+        return new CustomerSequenceMigration(new JdbcTemplate(dataSource), "CUSTOMER", Customer.ID_SEQUENCE,
+                Customer.ID_ALLOCATION_SIZE);
+    }
+
+    @Bean
+    public ChunkSizing chunkSizing(@Value("${batch.chunk.size:100}") int size,
+                                   @Value("${batch.chunk.adaptive:false}") boolean adaptive,
+                                   @Value("${batch.chunk.min:50}") int minSize,
+                                   @Value("${batch.chunk.max:2000}") int maxSize,
+                                   @Value("${batch.chunk.target-latency:500ms}") Duration targetLatency) {
+        if (adaptive) {
+            log.info("Using adaptive chunk size: start {}, bounds [{}, {}], target write+commit latency {}",
+                    size, minSize, maxSize, targetLatency);
+        }
+        return new ChunkSizing(size, adaptive, minSize, maxSize, targetLatency);
+    }
+
+    @Bean
+    public ChunkMetricsListener chunkMetricsListener() {
+        return new ChunkMetricsListener();
+    }
+
+    @Bean
+    public PartitionQueue partitionQueue(@Qualifier("dataSource") DataSource dataSource) {
+        return new PartitionQueue(dataSource);
+    }
+
+    @Bean
+    public PartitionDispatch partitionDispatch(PartitionQueue partitionQueue,
+                                               JobExplorer jobExplorer,
+                                               JobRepository jobRepository,
+                                               @Value("${batch.partition.remote.enabled:false}") boolean remote,
+                                               @Value("${batch.partition.remote.poll-interval:1s}") Duration pollInterval,
+                                               @Value("${batch.partition.remote.timeout:1h}") Duration timeout) {
+        if (remote) {
+            log.info("Partitions are queued in BATCH_PARTITION_QUEUE for worker nodes (timeout {})", timeout);
+        }
+        return new PartitionDispatch(remote, partitionQueue, jobExplorer, jobRepository, pollInterval, timeout);
+    }
+
     @Bean
-    public ItemProcessor<Customer, Customer> customerItemProcessor() {
-        return new CustomerItemProcessor();
+    @ConditionalOnExpression("${batch.partition.remote.enabled:false} and ${batch.partition.remote.worker:true}")
+    public PartitionQueueWorker partitionQueueWorker(PartitionQueue partitionQueue,
+                                                     JobExplorer jobExplorer,
+                                                     JobRepository jobRepository,
+                                                     List<Step> steps,
+                                                     @Value("${batch.partition.threads:8}") int threads,
+                                                     @Value("${batch.partition.remote.poll-interval:1s}") Duration pollInterval,
+                                                     @Value("${batch.partition.remote.node-id:}") String nodeId) {
+        return new PartitionQueueWorker(partitionQueue, jobExplorer, jobRepository, steps,
+                nodeId.isBlank() ? ManagementFactory.getRuntimeMXBean().getName() : nodeId, threads, pollInterval);
     }
 }
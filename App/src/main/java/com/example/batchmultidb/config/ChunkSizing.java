@@ -0,0 +1,46 @@
+package com.example.batchmultidb.config;
+
+import com.example.batchmultidb.batch.AdaptiveChunkCompletionPolicy;
+import com.example.batchmultidb.batch.StepExecutionChunkPolicy;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import lombok.RequiredArgsConstructor;
+import org.springframework.batch.core.ItemWriteListener;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.step.builder.SimpleStepBuilder;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+
+/**
+ * Chunk size settings shared by every import step ({@code batch.chunk.*}).
+ */
+@RequiredArgsConstructor
+public class ChunkSizing {
+
+    private final int size;
+    private final boolean adaptive;
+    private final int minSize;
+    private final int maxSize;
+    private final Duration targetLatency;
+
+    public <I, O> SimpleStepBuilder<I, O> chunk(StepBuilder stepBuilder, String stepName,
+                                                PlatformTransactionManager transactionManager) {
+        if (!adaptive) {
+            // same gauge as the adaptive policy publishes, so dashboards need not care which is in use
+            Gauge.builder("batch.chunk.size", () -> size)
+                    .tag("step", stepName)
+                    .description("Current chunk size")
+                    .register(Metrics.globalRegistry);
+            return stepBuilder.chunk(size, transactionManager);
+        }
+        int initialSize = Math.max(minSize, Math.min(maxSize, size));
+        // one policy per step execution: partitions of a worker step share this builder's step
+        StepExecutionChunkPolicy policy = new StepExecutionChunkPolicy(stepName, initialSize,
+                () -> new AdaptiveChunkCompletionPolicy(stepName, initialSize, minSize, maxSize, targetLatency));
+        SimpleStepBuilder<I, O> builder = stepBuilder.chunk(policy, transactionManager);
+        builder.listener((StepExecutionListener) policy);
+        return builder.listener((ItemWriteListener<Object>) policy);
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.batchmultidb.config;
+
+import com.example.batchmultidb.datasource.ConnectionFactory;
+import com.example.batchmultidb.datasource.DataStoreType;
+import com.example.batchmultidb.datasource.Workload;
+import com.example.batchmultidb.repository.CustomerReadRepository;
+import com.example.batchmultidb.service.CustomerCache;
+import com.example.batchmultidb.service.CustomerCacheInvalidator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+@Configuration
+@Slf4j
+public class CustomerCacheConfig {
+
+    @Bean
+    public CustomerReadRepository customerReadRepository(@Qualifier("apiReadDataSource") DataSource dataSource,
+                                                         ConnectionFactory connectionFactory,
+                                                         @Value("${batch.sharding.enabled:false}") boolean sharded) {
+        if (sharded) {
+            return new CustomerReadRepository(connectionFactory.getShardRouter(DataStoreType.SHARDED, Workload.API_READ));
+        }
+        return new CustomerReadRepository(dataSource);
+    }
+
+    @Bean
+    public CustomerCache customerCache(CustomerReadRepository customerReadRepository,
+                                       @Value("${customers.cache.maximum-size:100000}") long maximumSize,
+                                       @Value("${customers.cache.expire-after-write:10m}") Duration expireAfterWrite) {
+        log.info("Using customer lookup cache (maximum size {} per view, expire after write {})",
+                maximumSize, expireAfterWrite);
+        return new CustomerCache(customerReadRepository, maximumSize, expireAfterWrite);
+    }
+
+    @Bean
+    public CustomerCacheInvalidator customerCacheInvalidator(CustomerCache customerCache) {
+        return new CustomerCacheInvalidator(customerCache);
+    }
+}
@@ -1,20 +1,35 @@
 package com.example.batchmultidb.config;
 
 import com.example.batchmultidb.datasource.ConnectionFactory;
+import com.example.batchmultidb.datasource.DataStoreType;
 import com.example.batchmultidb.datasource.DefaultConnectionFactory;
+import com.example.batchmultidb.datasource.Workload;
+import com.example.batchmultidb.datasource.ShardRouter;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
 import org.springframework.jdbc.core.JdbcTemplate;
 
 import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 
 @Configuration
+@Slf4j
 public class DatabaseConfig {
 
     // -------- DataSource properties ----------
@@ -31,28 +46,110 @@ public class DatabaseConfig {
         return new DataSourceProperties();
     }
 
-    // -------- Primary DataSource switches between H2 (local) and Oracle (oracle/s3) ----------
+    // -------- Batch-write pools: the primary DataSource behind JPA, the job repository and the chunk
+    // transaction, switching between H2 (local) and Oracle (oracle/s3) ----------
 
     @Primary
     @Bean(name = "dataSource")
     @ConditionalOnProperty(name = "batch.mode", havingValue = "local", matchIfMissing = true)
-    public DataSource h2PrimaryDataSource() {
-        return h2DataSourceProperties().initializeDataSourceBuilder().build();
+    @ConfigurationProperties("spring.datasource.h2.batch-write")
+    public HikariDataSource h2PrimaryDataSource() {
+        return pool(h2DataSourceProperties(), DataStoreType.H2, Workload.BATCH_WRITE, 10, 64);
     }
 
     @Primary
     @Bean(name = "dataSource")
     @ConditionalOnExpression("'${batch.mode:local}'!='local'")
-    public DataSource oraclePrimaryDataSource() {
-        return oracleDataSourceProperties().initializeDataSourceBuilder().build();
+    @ConfigurationProperties("spring.datasource.oracle.batch-write")
+    public HikariDataSource oraclePrimaryDataSource() {
+        return pool(oracleDataSourceProperties(), DataStoreType.ORACLE, Workload.BATCH_WRITE, 10, 64);
+    }
+
+    // -------- API-read pools for /customers, on the same database as the batch-write pool ----------
+
+    @Bean(name = "apiReadDataSource")
+    @ConditionalOnProperty(name = "batch.mode", havingValue = "local", matchIfMissing = true)
+    @ConfigurationProperties("spring.datasource.h2.api-read")
+    public HikariDataSource h2ApiReadDataSource() {
+        return pool(h2DataSourceProperties(), DataStoreType.H2, Workload.API_READ, 5, 64);
+    }
+
+    @Bean(name = "apiReadDataSource")
+    @ConditionalOnExpression("'${batch.mode:local}'!='local'")
+    @ConfigurationProperties("spring.datasource.oracle.api-read")
+    public HikariDataSource oracleApiReadDataSource() {
+        return pool(oracleDataSourceProperties(), DataStoreType.ORACLE, Workload.API_READ, 5, 32);
     }
 
     // -------- Secondary H2 DataSource for audit (oracle/s3 modes) ----------
 
     @Bean(name = "h2AuditDataSource")
     @ConditionalOnExpression("'${batch.mode:local}'!='local'")
-    public DataSource h2AuditDataSource() {
-        return h2DataSourceProperties().initializeDataSourceBuilder().build();
+    @ConfigurationProperties("spring.datasource.h2.audit")
+    public HikariDataSource h2AuditDataSource() {
+        return pool(h2DataSourceProperties(), DataStoreType.H2, Workload.AUDIT, 4, 64);
+    }
+
+    // -------- Sharded CUSTOMER store (batch.sharding.enabled): a batch-write and an api-read pool per
+    // database listed under batch.sharding.shards ----------
+
+    @Bean(name = "shardedBatchWriteRouter")
+    @ConditionalOnProperty(name = "batch.sharding.enabled", havingValue = "true")
+    public ShardRouter shardedBatchWriteRouter(Environment environment,
+                                               @Value("${batch.sharding.batch-write-pool-size:4}") int poolSize) {
+        return shardRouter(environment, Workload.BATCH_WRITE, poolSize);
+    }
+
+    @Bean(name = "shardedApiReadRouter")
+    @ConditionalOnProperty(name = "batch.sharding.enabled", havingValue = "true")
+    public ShardRouter shardedApiReadRouter(Environment environment,
+                                            @Value("${batch.sharding.api-read-pool-size:2}") int poolSize) {
+        return shardRouter(environment, Workload.API_READ, poolSize);
+    }
+
+    private static ShardRouter shardRouter(Environment environment, Workload workload, int poolSize) {
+        List<DataSourceProperties> shards = Binder.get(environment)
+                .bind("batch.sharding.shards", Bindable.listOf(DataSourceProperties.class))
+                .orElseThrow(() -> new IllegalStateException(
+                        "batch.sharding.enabled is set but no batch.sharding.shards are configured"));
+        List<DataSource> dataSources = new ArrayList<>(shards.size());
+        for (int shard = 0; shard < shards.size(); shard++) {
+            DataSourceProperties properties = shards.get(shard);
+            DataStoreType vendor = properties.determineUrl().startsWith("jdbc:h2:")
+                    ? DataStoreType.H2 : DataStoreType.ORACLE;
+            HikariDataSource dataSource = pool(properties, vendor, workload, poolSize, 64);
+            // not beans, so Boot does not bind their metrics: report them under pool=shard<N>-<workload>
+            dataSource.setPoolName("shard" + shard + dataSource.getPoolName().substring(vendor.name().length()));
+            dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(Metrics.globalRegistry));
+            dataSources.add(dataSource);
+        }
+        log.info("Sharding CUSTOMER by email hash over {} databases ({} {} connections each)",
+                dataSources.size(), poolSize, workload);
+        return new ShardRouter("shard-" + workload.name().toLowerCase().replace('_', '-'), dataSources);
+    }
+
+    /**
+     * A pool named {@code <store>-<workload>}, which is the {@code pool} tag of its
+     * {@code hikaricp.connections.*} usage and acquire-time metrics. Sizes set here are
+     * defaults; the {@code @ConfigurationProperties} prefix of each bean overrides them.
+     */
+    private static HikariDataSource pool(DataSourceProperties properties, DataStoreType store, Workload workload,
+                                         int maximumPoolSize, int statementCacheSize) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName(store.name().toLowerCase() + "-" + workload.name().toLowerCase().replace('_', '-'));
+        dataSource.setMaximumPoolSize(maximumPoolSize);
+        if (workload == Workload.API_READ) {
+            // an API request should fail fast rather than queue behind a saturated pool
+            dataSource.setConnectionTimeout(5_000);
+        }
+        switch (store) {
+            // implicit statement cache, per connection
+            case ORACLE -> dataSource.addDataSourceProperty("oracle.jdbc.implicitStatementCacheSize",
+                    String.valueOf(statementCacheSize));
+            // H2 keeps one query cache per database, sized by whichever pool opens it first
+            case H2 -> dataSource.addDataSourceProperty("QUERY_CACHE_SIZE", String.valueOf(statementCacheSize));
+        }
+        return dataSource;
     }
 
     // -------- JdbcTemplates ----------
@@ -78,13 +175,39 @@ public class DatabaseConfig {
         return new JdbcTemplate(ds);
     }
 
-    // -------- ConnectionFactory implementation (S3 mode requires both stores) ----------
+    // -------- ConnectionFactory: every pool of the active batch.mode by store and workload ----------
 
-    @Bean
-    @ConditionalOnProperty(name = "batch.mode", havingValue = "s3")
-    public ConnectionFactory connectionFactory(
-            @Qualifier("oracleJdbcTemplate") JdbcTemplate oracleJdbcTemplate,
-            @Qualifier("h2JdbcTemplate") JdbcTemplate h2JdbcTemplate) {
-        return new DefaultConnectionFactory(oracleJdbcTemplate, h2JdbcTemplate);
+    @Bean(name = "connectionFactory")
+    @ConditionalOnProperty(name = "batch.mode", havingValue = "local", matchIfMissing = true)
+    public ConnectionFactory localConnectionFactory(@Qualifier("dataSource") DataSource batchWriteDataSource,
+                                                    @Qualifier("apiReadDataSource") DataSource apiReadDataSource,
+                                                    @Qualifier("shardedBatchWriteRouter") Optional<ShardRouter> shardedBatchWrite,
+                                                    @Qualifier("shardedApiReadRouter") Optional<ShardRouter> shardedApiRead) {
+        return withShards(new DefaultConnectionFactory()
+                .register(DataStoreType.H2, Workload.BATCH_WRITE, batchWriteDataSource)
+                .register(DataStoreType.H2, Workload.API_READ, apiReadDataSource), shardedBatchWrite, shardedApiRead);
+    }
+
+    @Bean(name = "connectionFactory")
+    @ConditionalOnExpression("'${batch.mode:local}'!='local'")
+    public ConnectionFactory multiDbConnectionFactory(@Qualifier("dataSource") DataSource batchWriteDataSource,
+                                                      @Qualifier("apiReadDataSource") DataSource apiReadDataSource,
+                                                      @Qualifier("h2AuditDataSource") DataSource h2AuditDataSource,
+                                                      @Qualifier("shardedBatchWriteRouter") Optional<ShardRouter> shardedBatchWrite,
+                                                      @Qualifier("shardedApiReadRouter") Optional<ShardRouter> shardedApiRead) {
+        return withShards(new DefaultConnectionFactory()
+                .register(DataStoreType.ORACLE, Workload.BATCH_WRITE, batchWriteDataSource)
+                .register(DataStoreType.ORACLE, Workload.API_READ, apiReadDataSource)
+                .register(DataStoreType.H2, Workload.AUDIT, h2AuditDataSource), shardedBatchWrite, shardedApiRead);
+    }
+
+    private static ConnectionFactory withShards(DefaultConnectionFactory connectionFactory,
+                                                Optional<ShardRouter> shardedBatchWrite,
+                                                Optional<ShardRouter> shardedApiRead) {
+        shardedBatchWrite.ifPresent(router ->
+                connectionFactory.registerShards(DataStoreType.SHARDED, Workload.BATCH_WRITE, router));
+        shardedApiRead.ifPresent(router ->
+                connectionFactory.registerShards(DataStoreType.SHARDED, Workload.API_READ, router));
+        return connectionFactory;
     }
 }
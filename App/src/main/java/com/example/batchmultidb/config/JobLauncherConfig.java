@@ -0,0 +1,40 @@
+package com.example.batchmultidb.config;
+
+import com.example.batchmultidb.batch.AdmissionControlJobLauncher;
+import com.example.batchmultidb.datasource.DataStoreType;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Map;
+
+@Configuration
+public class JobLauncherConfig {
+
+    /**
+     * Launcher behind {@code POST /jobs/import-*} and {@code /jobs/export-customers}: returns as
+     * soon as the execution is created, unlike the synchronous {@code jobLauncher} of
+     * {@code @EnableBatchProcessing}, and admits jobs per target database ({@code batch.launch.*}).
+     */
+    @Bean(name = "asyncJobLauncher")
+    public JobLauncher asyncJobLauncher(JobRepository jobRepository,
+                                        @Value("${batch.launch.oracle-concurrency:2}") int oracleConcurrency,
+                                        @Value("${batch.launch.h2-concurrency:4}") int h2Concurrency,
+                                        @Value("${batch.launch.queue-capacity:100}") int queueCapacity,
+                                        @Value("${batch.mode:local}") String mode)
+            throws Exception {
+        // the H2 audit copy of s3 imports is asynchronous, so those jobs are admitted against Oracle;
+        // exports read CUSTOMER from the target database of the mode
+        Map<String, DataStoreType> jobTargets = Map.of(
+                "localImportCustomersJob", DataStoreType.H2,
+                "oracleImportCustomersJob", DataStoreType.ORACLE,
+                "s3ImportCustomersJob", DataStoreType.ORACLE,
+                "exportCustomersJob", "local".equals(mode) ? DataStoreType.H2 : DataStoreType.ORACLE);
+        return new AdmissionControlJobLauncher(jobRepository,
+                Map.of(DataStoreType.ORACLE, oracleConcurrency, DataStoreType.H2, h2Concurrency),
+                queueCapacity, jobTargets, Metrics.globalRegistry);
+    }
+}
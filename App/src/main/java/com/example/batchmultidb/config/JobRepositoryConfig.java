@@ -0,0 +1,38 @@
+package com.example.batchmultidb.config;
+
+import com.example.batchmultidb.batch.BufferedJobRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "batch.job-repository.mode", havingValue = "buffered")
+public class JobRepositoryConfig {
+
+    /**
+     * Wraps the {@code jobRepository} of {@code @EnableBatchProcessing} in a
+     * {@link BufferedJobRepository}, so every step and launcher gets the buffered one.
+     */
+    @Bean
+    public static BeanPostProcessor bufferedJobRepositoryPostProcessor(
+            @Value("${batch.job-repository.checkpoint-interval:0s}") Duration checkpointInterval) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof JobRepository jobRepository && !(bean instanceof BufferedJobRepository)) {
+                    log.info("Job repository {} writes step progress at step boundaries only (checkpoint interval {})",
+                            beanName, checkpointInterval.isZero() ? "none" : checkpointInterval);
+                    return new BufferedJobRepository(jobRepository, checkpointInterval);
+                }
+                return bean;
+            }
+        };
+    }
+}
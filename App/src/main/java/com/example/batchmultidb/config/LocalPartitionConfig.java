@@ -0,0 +1,85 @@
+package com.example.batchmultidb.config;
+
+import com.example.batchmultidb.batch.ChunkMetricsListener;
+import com.example.batchmultidb.batch.CsvLinePartitioner;
+import com.example.batchmultidb.batch.LocalCsvCustomerItemReader;
+import com.example.batchmultidb.domain.Customer;
+import com.example.batchmultidb.service.CustomerCacheInvalidator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Partitioned variant of the local CSV import: the file is split into line-aligned
+ * byte ranges and each range is imported by its own worker step on a thread pool.
+ * Enabled with {@code batch.partition.enabled=true} in local mode.
+ */
+@Configuration
+@ConditionalOnExpression("'${batch.mode:local}'=='local' and ${batch.partition.enabled:false}")
+@Slf4j
+public class LocalPartitionConfig {
+
+    @Value("${local.csv.path:classpath:data/customers.csv}")
+    private String localCsvPath;
+
+    @Value("${batch.partition.grid-size:8}")
+    private int gridSize;
+
+    @Value("${batch.partition.threads:8}")
+    private int threads;
+
+    @Bean
+    public CsvLinePartitioner localCsvPartitioner(ResourceLoader resourceLoader) {
+        log.info("Using partitioned local CSV import from: {} (grid size {})", localCsvPath, gridSize);
+        return new CsvLinePartitioner(resourceLoader.getResource(localCsvPath));
+    }
+
+    @Bean
+    @StepScope
+    public LocalCsvCustomerItemReader localCsvPartitionItemReader(
+            ResourceLoader resourceLoader,
+            @Value("#{stepExecutionContext['" + CsvLinePartitioner.START_OFFSET_KEY + "']}") Long startOffset,
+            @Value("#{stepExecutionContext['" + CsvLinePartitioner.END_OFFSET_KEY + "']}") Long endOffset) {
+        return new LocalCsvCustomerItemReader(resourceLoader.getResource(localCsvPath), startOffset, endOffset);
+    }
+
+    @Bean(name = "localCustomerWorkerStep")
+    public Step localCustomerWorkerStep(JobRepository jobRepository,
+                                        PlatformTransactionManager transactionManager,
+                                        ChunkSizing chunkSizing,
+                                        CustomerCacheInvalidator customerCacheInvalidator,
+                                        ChunkMetricsListener chunkMetricsListener,
+                                        @Qualifier("localCsvPartitionItemReader") LocalCsvCustomerItemReader reader,
+                                        ItemProcessor<Customer, Customer> processor,
+                                        ItemWriter<Customer> writer) {
+        return chunkSizing.<Customer, Customer>chunk(new StepBuilder("localCustomerWorkerStep", jobRepository),
+                        "localCustomerWorkerStep", transactionManager)
+                .reader(reader)
+                .processor(processor)
+                .writer(writer)
+                .listener(customerCacheInvalidator)
+                .listener(chunkMetricsListener)
+                .build();
+    }
+
+    @Bean(name = "localCustomerImportStep")
+    public Step localPartitionedCustomerImportStep(JobRepository jobRepository,
+                                                   CsvLinePartitioner localCsvPartitioner,
+                                                   PartitionDispatch partitionDispatch,
+                                                   @Qualifier("localCustomerWorkerStep") Step workerStep) {
+        return partitionDispatch.partition(new StepBuilder("localCustomerImportStep", jobRepository),
+                        localCsvPartitioner, workerStep, gridSize, PartitionDispatch.partitionThreads("partition-", threads))
+                .build();
+    }
+}
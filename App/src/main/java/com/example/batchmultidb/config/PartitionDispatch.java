@@ -0,0 +1,53 @@
+package com.example.batchmultidb.config;
+
+import com.example.batchmultidb.batch.JdbcQueuePartitionHandler;
+import com.example.batchmultidb.batch.PartitionQueue;
+import lombok.RequiredArgsConstructor;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.builder.PartitionStepBuilder;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+
+import java.time.Duration;
+
+/**
+ * How partitioned import steps hand partitions to their worker step ({@code batch.partition.remote.*}):
+ * to threads of this node, or through the {@link PartitionQueue} to every node that polls it.
+ */
+@RequiredArgsConstructor
+public class PartitionDispatch {
+
+    private final boolean remote;
+    private final PartitionQueue queue;
+    private final JobExplorer jobExplorer;
+    private final JobRepository jobRepository;
+    private final Duration pollInterval;
+    private final Duration timeout;
+
+    public PartitionStepBuilder partition(StepBuilder stepBuilder, Partitioner partitioner, Step workerStep,
+                                          int gridSize, TaskExecutor taskExecutor) {
+        PartitionStepBuilder builder = stepBuilder.partitioner(workerStep.getName(), partitioner)
+                .step(workerStep)
+                .gridSize(gridSize);
+        if (!remote) {
+            return builder.taskExecutor(taskExecutor);
+        }
+        return builder.partitionHandler(new JdbcQueuePartitionHandler(queue, jobExplorer, jobRepository,
+                workerStep, gridSize, pollInterval, timeout));
+    }
+
+    /**
+     * Threads for the partitions of one step, at most {@code threads} at a time. Deliberately not
+     * a bean: any {@code Executor} bean makes Boot skip its {@code applicationTaskExecutor}, and MVC
+     * async requests such as {@code /customers/stream} would get a new thread each.
+     */
+    public static TaskExecutor partitionThreads(String threadNamePrefix, int threads) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+        executor.setConcurrencyLimit(threads);
+        return executor;
+    }
+}
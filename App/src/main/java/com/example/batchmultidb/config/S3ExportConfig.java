@@ -0,0 +1,90 @@
+package com.example.batchmultidb.config;
+
+import com.example.batchmultidb.batch.CustomerExportTasklet;
+import com.example.batchmultidb.datasource.ConnectionFactory;
+import com.example.batchmultidb.datasource.DataStoreType;
+import com.example.batchmultidb.datasource.Workload;
+import com.example.batchmultidb.repository.CustomerReadRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.core.job.builder.JobBuilder;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.services.s3.S3Client;
+
+import javax.sql.DataSource;
+
+/**
+ * Export of {@code CUSTOMER} to {@code s3://<aws.s3.bucket-name>/<batch.export.key>} as CSV
+ * ({@code POST /jobs/export-customers}), read from the target database's batch-write pool.
+ */
+@Configuration
+@ConditionalOnProperty(name = "batch.export.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class S3ExportConfig {
+
+    // S3 rejects multipart uploads with a part other than the last below 5 MB
+    private static final DataSize MIN_PART_SIZE = DataSize.ofMegabytes(5);
+
+    @Value("${aws.s3.bucket-name}")
+    private String bucketName;
+
+    @Value("${batch.export.gzip:false}")
+    private boolean gzip;
+
+    @Value("${batch.export.part-size:16MB}")
+    private DataSize partSize;
+
+    @Value("${batch.export.concurrency:4}")
+    private int concurrency;
+
+    @Value("${batch.export.range-size:10000}")
+    private long rangeSize;
+
+    @Bean
+    @StepScope
+    public CustomerExportTasklet customerExportTasklet(
+            @Qualifier("dataSource") DataSource dataSource,
+            ConnectionFactory connectionFactory,
+            @Value("${batch.sharding.enabled:false}") boolean sharded,
+            S3Client s3Client,
+            @Value("#{jobParameters['key'] ?: '${batch.export.key:exports/customers.csv}'}") String key) {
+        CustomerReadRepository customers = sharded
+                ? new CustomerReadRepository(connectionFactory.getShardRouter(DataStoreType.SHARDED, Workload.BATCH_WRITE))
+                : new CustomerReadRepository(dataSource);
+        return new CustomerExportTasklet(customers, s3Client, bucketName, key, gzip,
+                (int) partSize.toBytes(), concurrency, rangeSize);
+    }
+
+    @Bean(name = "exportCustomersStep")
+    public Step exportCustomersStep(JobRepository jobRepository,
+                                    PlatformTransactionManager transactionManager,
+                                    CustomerExportTasklet customerExportTasklet) {
+        if (partSize.compareTo(MIN_PART_SIZE) < 0 || partSize.toBytes() > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("batch.export.part-size must be between 5MB and 2GB, was " + partSize);
+        }
+        log.info("Using S3 customer export to s3://{} ({} ranges of {} IDs read and {} parts of {} uploaded at a time{})",
+                bucketName, concurrency, rangeSize, concurrency, partSize, gzip ? ", gzipped" : "");
+        return new StepBuilder("exportCustomersStep", jobRepository)
+                .tasklet(customerExportTasklet, transactionManager)
+                .listener(customerExportTasklet)
+                .build();
+    }
+
+    @Bean(name = "exportCustomersJob")
+    public Job exportCustomersJob(JobRepository jobRepository,
+                                  @Qualifier("exportCustomersStep") Step exportCustomersStep) {
+        return new JobBuilder("exportCustomersJob", jobRepository)
+                .start(exportCustomersStep)
+                .build();
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.batchmultidb.config;
+
+import com.example.batchmultidb.batch.ChunkMetricsListener;
+import com.example.batchmultidb.batch.CompressionCodec;
+import com.example.batchmultidb.batch.CsvLinePartitioner;
+import com.example.batchmultidb.batch.S3CustomerItemReader;
+import com.example.batchmultidb.batch.S3RangePartitioner;
+import com.example.batchmultidb.batch.S3RangedCustomerItemReader;
+import com.example.batchmultidb.domain.Customer;
+import com.example.batchmultidb.service.CustomerCacheInvalidator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.services.s3.S3Client;
+
+/**
+ * Partitioned variant of the S3 import: the object is split into byte ranges from its
+ * {@code HeadObject} size and each range is read with ranged GETs by its own worker step.
+ * Enabled with {@code batch.partition.enabled=true} in s3 mode.
+ */
+@Configuration
+@ConditionalOnExpression("'${batch.mode:local}'=='s3' and ${batch.partition.enabled:false} and '${aws.s3.prefix:}'==''")
+@Slf4j
+public class S3PartitionConfig {
+
+    @Value("${aws.s3.bucket-name}")
+    private String bucketName;
+
+    @Value("${aws.s3.key}")
+    private String key;
+
+    @Value("${aws.s3.ranged-read.part-size:8MB}")
+    private DataSize partSize;
+
+    @Value("${aws.s3.ranged-read.concurrency:8}")
+    private int concurrency;
+
+    @Value("${batch.partition.grid-size:8}")
+    private int gridSize;
+
+    @Value("${batch.partition.threads:8}")
+    private int threads;
+
+    @Bean
+    public S3RangePartitioner s3RangePartitioner(S3Client s3Client) {
+        log.info("Using partitioned S3 import from s3://{}/{} (grid size {}, {} ranged GETs per partition)",
+                bucketName, key, gridSize, concurrencyPerPartition());
+        return new S3RangePartitioner(s3Client, bucketName, key, partSize.toBytes(), concurrency);
+    }
+
+    // ranged-read.concurrency bounds the whole job, not each of the partitions running at once
+    private int concurrencyPerPartition() {
+        return Math.max(1, concurrency / Math.max(1, Math.min(gridSize, threads)));
+    }
+
+    @Bean
+    @StepScope
+    public ItemStreamReader<Customer> s3RangePartitionItemReader(
+            S3Client s3Client,
+            @Value("#{stepExecutionContext['" + CsvLinePartitioner.START_OFFSET_KEY + "']}") Long startOffset,
+            @Value("#{stepExecutionContext['" + CsvLinePartitioner.END_OFFSET_KEY + "']}") Long endOffset) {
+        if (CompressionCodec.of(s3Client, bucketName, key).isCompressed()) {
+            // S3RangePartitioner made this the only partition
+            return new S3CustomerItemReader(s3Client, bucketName, key);
+        }
+        return new S3RangedCustomerItemReader(s3Client, bucketName, key,
+                partSize.toBytes(), concurrencyPerPartition(), startOffset, endOffset);
+    }
+
+    @Bean(name = "s3CustomerWorkerStep")
+    public Step s3CustomerWorkerStep(JobRepository jobRepository,
+                                     PlatformTransactionManager transactionManager,
+                                     ChunkSizing chunkSizing,
+                                     CustomerCacheInvalidator customerCacheInvalidator,
+                                     ChunkMetricsListener chunkMetricsListener,
+                                     @Qualifier("s3RangePartitionItemReader") ItemStreamReader<Customer> reader,
+                                     ItemProcessor<Customer, Customer> processor,
+                                     ItemWriter<Customer> writer) {
+        return chunkSizing.<Customer, Customer>chunk(new StepBuilder("s3CustomerWorkerStep", jobRepository),
+                        "s3CustomerWorkerStep", transactionManager)
+                .reader(reader)
+                .processor(processor)
+                .writer(writer)
+                .listener(customerCacheInvalidator)
+                .listener(chunkMetricsListener)
+                .build();
+    }
+
+    @Bean(name = "s3CustomerImportStep")
+    public Step s3PartitionedCustomerImportStep(JobRepository jobRepository,
+                                                S3RangePartitioner s3RangePartitioner,
+                                                PartitionDispatch partitionDispatch,
+                                                @Qualifier("s3CustomerWorkerStep") Step workerStep) {
+        return partitionDispatch.partition(new StepBuilder("s3CustomerImportStep", jobRepository),
+                        s3RangePartitioner, workerStep, gridSize, PartitionDispatch.partitionThreads("partition-", threads))
+                .build();
+    }
+}
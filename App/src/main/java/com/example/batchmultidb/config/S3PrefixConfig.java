@@ -0,0 +1,87 @@
+package com.example.batchmultidb.config;
+
+import com.example.batchmultidb.batch.ChunkMetricsListener;
+import com.example.batchmultidb.batch.S3CustomerItemReader;
+import com.example.batchmultidb.batch.S3ObjectProgressListener;
+import com.example.batchmultidb.batch.S3PrefixPartitioner;
+import com.example.batchmultidb.domain.Customer;
+import com.example.batchmultidb.service.CustomerCacheInvalidator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import software.amazon.awssdk.services.s3.S3Client;
+
+/**
+ * S3 import of every object under {@code aws.s3.prefix}: each object is imported by its
+ * own worker step, at most {@code aws.s3.prefix-import.parallelism} at a time.
+ * Enabled by setting {@code aws.s3.prefix} in s3 mode; replaces the single-key import.
+ */
+@Configuration
+@ConditionalOnExpression("'${batch.mode:local}'=='s3' and '${aws.s3.prefix:}'!=''")
+@Slf4j
+public class S3PrefixConfig {
+
+    @Value("${aws.s3.bucket-name}")
+    private String bucketName;
+
+    @Value("${aws.s3.prefix}")
+    private String prefix;
+
+    @Value("${aws.s3.prefix-import.parallelism:4}")
+    private int parallelism;
+
+    @Bean
+    public S3PrefixPartitioner s3PrefixPartitioner(S3Client s3Client) {
+        log.info("Using S3 prefix import from s3://{}/{} ({} objects in parallel)", bucketName, prefix, parallelism);
+        return new S3PrefixPartitioner(s3Client, bucketName, prefix);
+    }
+
+    @Bean
+    @StepScope
+    public S3CustomerItemReader s3ObjectItemReader(
+            S3Client s3Client,
+            @Value("#{stepExecutionContext['" + S3PrefixPartitioner.OBJECT_KEY + "']}") String objectKey) {
+        return new S3CustomerItemReader(s3Client, bucketName, objectKey);
+    }
+
+    @Bean(name = "s3ObjectWorkerStep")
+    public Step s3ObjectWorkerStep(JobRepository jobRepository,
+                                   PlatformTransactionManager transactionManager,
+                                   ChunkSizing chunkSizing,
+                                   CustomerCacheInvalidator customerCacheInvalidator,
+                                   ChunkMetricsListener chunkMetricsListener,
+                                   @Qualifier("s3ObjectItemReader") S3CustomerItemReader reader,
+                                   ItemProcessor<Customer, Customer> processor,
+                                   ItemWriter<Customer> writer) {
+        return chunkSizing.<Customer, Customer>chunk(new StepBuilder("s3ObjectWorkerStep", jobRepository),
+                        "s3ObjectWorkerStep", transactionManager)
+                .reader(reader)
+                .processor(processor)
+                .writer(writer)
+                .listener(customerCacheInvalidator)
+                .listener(chunkMetricsListener)
+                .listener(new S3ObjectProgressListener())
+                .build();
+    }
+
+    @Bean(name = "s3CustomerImportStep")
+    public Step s3PrefixCustomerImportStep(JobRepository jobRepository,
+                                           S3PrefixPartitioner s3PrefixPartitioner,
+                                           PartitionDispatch partitionDispatch,
+                                           @Qualifier("s3ObjectWorkerStep") Step workerStep) {
+        // one partition per object, whatever the grid size
+        return partitionDispatch.partition(new StepBuilder("s3CustomerImportStep", jobRepository), s3PrefixPartitioner,
+                        workerStep, 1, PartitionDispatch.partitionThreads("s3-object-", parallelism))
+                .build();
+    }
+}
@@ -2,6 +2,16 @@ package com.example.batchmultidb.datasource;
 
 import org.springframework.jdbc.core.JdbcTemplate;
 
+import javax.sql.DataSource;
+
 public interface ConnectionFactory {
-    JdbcTemplate getJdbcTemplate(DataStoreType storeType);
+    JdbcTemplate getJdbcTemplate(DataStoreType storeType, Workload workload);
+
+    DataSource getDataSource(DataStoreType storeType, Workload workload);
+
+    /**
+     * The pools of a store spread over several databases, such as {@link DataStoreType#SHARDED},
+     * which has no single pool per workload.
+     */
+    ShardRouter getShardRouter(DataStoreType storeType, Workload workload);
 }
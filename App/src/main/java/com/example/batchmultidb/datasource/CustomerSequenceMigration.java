@@ -0,0 +1,88 @@
+package com.example.batchmultidb.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * One-time upgrade from the former IDENTITY {@code CUSTOMER.ID} column to {@code CUSTOMER_SEQ}: a table
+ * filled before the switch holds IDs 1..N the sequence knows nothing about, so its first blocks would
+ * collide with them. Runs once every singleton (and so Hibernate's schema update) is ready, before any
+ * job or request: creates the sequence if it is missing and restarts it above {@code MAX(ID)} if it is
+ * behind. Checking a sequence that is already ahead costs one block of IDs, like any restart of the
+ * pooled-lo optimizer.
+ * <p>
+ * Oracle needs 18c or later for {@code ALTER SEQUENCE ... RESTART}; on older versions drop the sequence
+ * and create it again {@code START WITH} a value above {@code MAX(ID)} before upgrading.
+ */
+@Slf4j
+public class CustomerSequenceMigration implements SmartInitializingSingleton {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String tableName;
+    private final String sequenceName;
+    private final int allocationSize;
+
+    public CustomerSequenceMigration(JdbcTemplate jdbcTemplate, String tableName, String sequenceName,
+                                     int allocationSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.tableName = tableName;
+        this.sequenceName = sequenceName;
+        this.allocationSize = allocationSize;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        migrate();
+    }
+
+    /**
+     * @return the value the sequence hands out next, or -1 if it was left untouched
+     */
+    public long migrate() {
+        boolean oracle = isOracle();
+        long start = maxId() + 1;
+        if (!sequenceExists(oracle)) {
+            jdbcTemplate.execute("CREATE SEQUENCE " + sequenceName + " START WITH " + start
+                    + " INCREMENT BY " + allocationSize);
+            log.info("Created {} starting at {}", sequenceName, start);
+            return start;
+        }
+        Long next = jdbcTemplate.queryForObject(oracle
+                ? "SELECT " + sequenceName + ".NEXTVAL FROM DUAL"
+                : "SELECT NEXT VALUE FOR " + sequenceName, Long.class);
+        if (next != null && next >= start) {
+            return -1;
+        }
+        jdbcTemplate.execute("ALTER SEQUENCE " + sequenceName + (oracle ? " RESTART START WITH " : " RESTART WITH ")
+                + start);
+        log.warn("Restarted {} at {}: it was at {}, behind the IDs already in {}", sequenceName, start, next, tableName);
+        return start;
+    }
+
+    private long maxId() {
+        try {
+            Long max = jdbcTemplate.queryForObject("SELECT MAX(ID) FROM " + tableName, Long.class);
+            return max == null ? 0 : max;
+        } catch (BadSqlGrammarException e) {
+            log.debug("No {} table yet, starting {} at 1", tableName, sequenceName);
+            return 0;
+        }
+    }
+
+    private boolean sequenceExists(boolean oracle) {
+        Integer count = jdbcTemplate.queryForObject(oracle
+                ? "SELECT COUNT(*) FROM USER_SEQUENCES WHERE SEQUENCE_NAME = ?"
+                : "SELECT COUNT(*) FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_SCHEMA = SCHEMA() AND SEQUENCE_NAME = ?",
+                Integer.class, sequenceName);
+        return count != null && count > 0;
+    }
+
+    private boolean isOracle() {
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        return product != null && product.toLowerCase().contains("oracle");
+    }
+}
@@ -2,5 +2,7 @@ package com.example.batchmultidb.datasource;
 
 public enum DataStoreType {
     ORACLE,
-    H2
+    H2,
+    /** CUSTOMER spread over several databases by email hash, see {@link ShardRouter}. */
+    SHARDED
 }
@@ -2,22 +2,58 @@ package com.example.batchmultidb.datasource;
 
 import org.springframework.jdbc.core.JdbcTemplate;
 
+import javax.sql.DataSource;
+import java.util.EnumMap;
+import java.util.Map;
+
 public class DefaultConnectionFactory implements ConnectionFactory {
 
-    private final JdbcTemplate oracleJdbcTemplate;
-    private final JdbcTemplate h2JdbcTemplate;
+    private final Map<DataStoreType, Map<Workload, DataSource>> dataSources = new EnumMap<>(DataStoreType.class);
+    private final Map<DataStoreType, Map<Workload, JdbcTemplate>> jdbcTemplates = new EnumMap<>(DataStoreType.class);
+    private final Map<DataStoreType, Map<Workload, ShardRouter>> shardRouters = new EnumMap<>(DataStoreType.class);
+
+    public DefaultConnectionFactory register(DataStoreType storeType, Workload workload, DataSource dataSource) {
+        dataSources.computeIfAbsent(storeType, store -> new EnumMap<>(Workload.class)).put(workload, dataSource);
+        jdbcTemplates.computeIfAbsent(storeType, store -> new EnumMap<>(Workload.class))
+                .put(workload, new JdbcTemplate(dataSource));
+        return this;
+    }
 
-    public DefaultConnectionFactory(JdbcTemplate oracleJdbcTemplate,
-                                    JdbcTemplate h2JdbcTemplate) {
-        this.oracleJdbcTemplate = oracleJdbcTemplate;
-        this.h2JdbcTemplate = h2JdbcTemplate;
+    public DefaultConnectionFactory registerShards(DataStoreType storeType, Workload workload, ShardRouter router) {
+        shardRouters.computeIfAbsent(storeType, store -> new EnumMap<>(Workload.class)).put(workload, router);
+        return this;
     }
 
     @Override
-    public JdbcTemplate getJdbcTemplate(DataStoreType storeType) {
-        return switch (storeType) {
-            case ORACLE -> oracleJdbcTemplate;
-            case H2 -> h2JdbcTemplate;
-        };
+    public JdbcTemplate getJdbcTemplate(DataStoreType storeType, Workload workload) {
+        return lookup(jdbcTemplates, unsharded(storeType, workload), workload);
+    }
+
+    @Override
+    public DataSource getDataSource(DataStoreType storeType, Workload workload) {
+        return lookup(dataSources, unsharded(storeType, workload), workload);
+    }
+
+    @Override
+    public ShardRouter getShardRouter(DataStoreType storeType, Workload workload) {
+        return lookup(shardRouters, storeType, workload);
+    }
+
+    private DataStoreType unsharded(DataStoreType storeType, Workload workload) {
+        if (shardRouters.getOrDefault(storeType, Map.of()).containsKey(workload)) {
+            throw new IllegalStateException(storeType + " is sharded: route " + workload
+                    + " connections through getShardRouter");
+        }
+        return storeType;
+    }
+
+    private static <T> T lookup(Map<DataStoreType, Map<Workload, T>> pools, DataStoreType storeType,
+                                Workload workload) {
+        T pool = pools.getOrDefault(storeType, Map.of()).get(workload);
+        if (pool == null) {
+            throw new IllegalStateException("No " + workload + " pool configured for " + storeType
+                    + " in this batch.mode");
+        }
+        return pool;
     }
 }
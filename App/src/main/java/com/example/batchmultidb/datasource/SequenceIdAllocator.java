@@ -0,0 +1,61 @@
+package com.example.batchmultidb.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Hands out IDs from a database sequence in pooled blocks: one sequence call
+ * reserves {@code allocationSize} IDs starting at the returned value. This is the
+ * same "pooled-lo" scheme Hibernate uses for {@code Customer}, so JPA and JDBC
+ * writers can share the sequence without colliding.
+ */
+@Slf4j
+public class SequenceIdAllocator {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String sequenceName;
+    private final int allocationSize;
+
+    private String nextValueSql;
+    private long next;
+    private long limit;
+
+    public SequenceIdAllocator(JdbcTemplate jdbcTemplate, String sequenceName, int allocationSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.sequenceName = sequenceName;
+        this.allocationSize = allocationSize;
+    }
+
+    public synchronized long nextId() {
+        if (next >= limit) {
+            next = fetchBlockStart();
+            limit = next + allocationSize;
+        }
+        return next++;
+    }
+
+    public synchronized long[] nextIds(int count) {
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = nextId();
+        }
+        return ids;
+    }
+
+    private long fetchBlockStart() {
+        if (nextValueSql == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            nextValueSql = product != null && product.toLowerCase().contains("oracle")
+                    ? "SELECT " + sequenceName + ".NEXTVAL FROM DUAL"
+                    : "SELECT NEXT VALUE FOR " + sequenceName;
+            log.debug("Allocating {} IDs per call with: {}", allocationSize, nextValueSql);
+        }
+        Long value = jdbcTemplate.queryForObject(nextValueSql, Long.class);
+        if (value == null) {
+            throw new IllegalStateException("Sequence " + sequenceName + " returned no value");
+        }
+        return value;
+    }
+}
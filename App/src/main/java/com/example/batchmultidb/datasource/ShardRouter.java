@@ -0,0 +1,153 @@
+package com.example.batchmultidb.datasource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+
+/**
+ * Routes customers to one of N databases by a stable hash of their {@code EMAIL}
+ * (CRC-32 of the UTF-8 bytes, modulo the shard count), and runs per-shard work in
+ * parallel, one thread per shard. The hash does not depend on the JVM, so the same
+ * email always lands on the same shard; changing the number of shards means
+ * rebalancing the existing rows.
+ * <p>
+ * Closing the router stops its threads and closes the shard pools.
+ */
+public class ShardRouter implements AutoCloseable {
+
+    @FunctionalInterface
+    public interface ShardTask<T> {
+        void run(int shard, T work) throws Exception;
+    }
+
+    private final List<DataSource> dataSources;
+    private final List<JdbcTemplate> jdbcTemplates = new ArrayList<>();
+    private final ThreadPoolTaskExecutor executor;
+
+    public ShardRouter(String name, List<DataSource> dataSources) {
+        if (dataSources.isEmpty()) {
+            throw new IllegalArgumentException("Shard router " + name + " needs at least one shard");
+        }
+        this.dataSources = List.copyOf(dataSources);
+        for (DataSource dataSource : this.dataSources) {
+            jdbcTemplates.add(new JdbcTemplate(dataSource));
+        }
+        if (dataSources.size() > 1) {
+            executor = new ThreadPoolTaskExecutor();
+            executor.setCorePoolSize(dataSources.size());
+            executor.setMaxPoolSize(dataSources.size());
+            executor.setThreadNamePrefix(name + "-");
+            executor.setDaemon(true);
+            executor.initialize();
+        } else {
+            executor = null;
+        }
+    }
+
+    public int shardCount() {
+        return dataSources.size();
+    }
+
+    public int shardOf(String email) {
+        if (dataSources.size() == 1) {
+            return 0;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(email.getBytes(StandardCharsets.UTF_8));
+        return (int) (crc.getValue() % dataSources.size());
+    }
+
+    public DataSource getDataSource(int shard) {
+        return dataSources.get(shard);
+    }
+
+    public JdbcTemplate getJdbcTemplate(int shard) {
+        return jdbcTemplates.get(shard);
+    }
+
+    public JdbcTemplate getJdbcTemplate(String email) {
+        return jdbcTemplates.get(shardOf(email));
+    }
+
+    /**
+     * Runs {@code task} for every entry of {@code work} (shard index to its share) in parallel
+     * and waits for all of them. The first failure is rethrown once every shard has finished.
+     */
+    public <T> void forEachShard(Map<Integer, T> work, ShardTask<T> task) throws Exception {
+        List<Callable<Void>> calls = new ArrayList<>(work.size());
+        for (Map.Entry<Integer, T> entry : work.entrySet()) {
+            calls.add(() -> {
+                task.run(entry.getKey(), entry.getValue());
+                return null;
+            });
+        }
+        invokeAll(calls);
+    }
+
+    /**
+     * Applies {@code query} to every shard in parallel; the results are in shard order.
+     */
+    public <R> List<R> fromEachShard(Function<JdbcTemplate, R> query) {
+        List<Callable<R>> calls = new ArrayList<>(jdbcTemplates.size());
+        for (JdbcTemplate jdbcTemplate : jdbcTemplates) {
+            calls.add(() -> query.apply(jdbcTemplate));
+        }
+        try {
+            return invokeAll(calls);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private <R> List<R> invokeAll(List<Callable<R>> calls) throws Exception {
+        List<R> results = new ArrayList<>(calls.size());
+        if (calls.size() == 1 || executor == null) {
+            for (Callable<R> call : calls) {
+                results.add(call.call());
+            }
+            return results;
+        }
+        List<Future<R>> futures = new ArrayList<>(calls.size());
+        for (Callable<R> call : calls) {
+            futures.add(executor.submit(call));
+        }
+        Exception failure = null;
+        for (Future<R> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof Exception cause ? cause : e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return results;
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (executor != null) {
+            executor.shutdown();
+        }
+        for (DataSource dataSource : dataSources) {
+            if (dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.batchmultidb.datasource;
+
+/**
+ * What a connection pool is used for. Each workload gets its own pool per
+ * {@link DataStoreType}, so one cannot starve the others of connections.
+ */
+public enum Workload {
+    /** Import chunks, the job repository and JPA; the pool behind the chunk transaction. */
+    BATCH_WRITE,
+    /** CUSTOMER_AUDIT copies of imported rows. */
+    AUDIT,
+    /** Reads behind the /customers API. */
+    API_READ
+}
@@ -12,8 +12,13 @@ import lombok.*;
 @Builder
 public class Customer {
 
+    public static final String ID_SEQUENCE = "CUSTOMER_SEQ";
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY) // adjust to SEQUENCE if needed for Oracle
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "customerIdGenerator")
+    // pooled IDs keep Hibernate JDBC batching possible and are shared with JdbcBatchCustomerItemWriter
+    @SequenceGenerator(name = "customerIdGenerator", sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     @Column(name = "FIRST_NAME", length = 100, nullable = false)
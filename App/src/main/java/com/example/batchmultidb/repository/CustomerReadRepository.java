@@ -0,0 +1,108 @@
+package com.example.batchmultidb.repository;
+
+import com.example.batchmultidb.datasource.ShardRouter;
+import com.example.batchmultidb.domain.Customer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Customer reads behind the /customers API. Plain JDBC on the API-read pool, so API
+ * traffic and running imports never wait for each other's connections.
+ * <p>
+ * Over a sharded store, email lookups go to the email's shard; ID lookups and pages ask
+ * every shard in parallel and merge the answers in ID order.
+ */
+public class CustomerReadRepository {
+
+    private static final String COLUMNS = "SELECT ID, FIRST_NAME, LAST_NAME, EMAIL FROM CUSTOMER";
+    private static final RowMapper<Customer> ROW_MAPPER =
+            (rs, rowNum) -> new Customer(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4));
+
+    private final ShardRouter shards;
+
+    public CustomerReadRepository(DataSource dataSource) {
+        this(new ShardRouter("api-read", List.of(dataSource)));
+    }
+
+    public CustomerReadRepository(ShardRouter shards) {
+        this.shards = shards;
+    }
+
+    public List<Customer> findPage(long afterId, int limit) {
+        List<Customer> page = new ArrayList<>();
+        for (List<Customer> shardPage : shards.fromEachShard(jdbcTemplate -> jdbcTemplate.query(
+                COLUMNS + " WHERE ID > ? ORDER BY ID FETCH FIRST ? ROWS ONLY", ROW_MAPPER, afterId, limit))) {
+            page.addAll(shardPage);
+        }
+        if (shards.shardCount() == 1) {
+            return page;
+        }
+        page.sort(Comparator.comparing(Customer::getId));
+        return page.size() > limit ? page.subList(0, limit) : page;
+    }
+
+    /**
+     * Lowest and highest customer ID, or empty if there are no customers.
+     */
+    public Optional<IdBounds> findIdBounds() {
+        return shards.fromEachShard(jdbcTemplate -> jdbcTemplate.query("SELECT MIN(ID), MAX(ID) FROM CUSTOMER",
+                        (rs, rowNum) -> rs.getObject(1) == null ? null : new IdBounds(rs.getLong(1), rs.getLong(2))))
+                .stream().flatMap(List::stream).filter(Objects::nonNull)
+                .reduce((a, b) -> new IdBounds(Math.min(a.min(), b.min()), Math.max(a.max(), b.max())));
+    }
+
+    /**
+     * Customers with {@code afterId < ID <= toId} in ID order; keep ranges small enough to hold in memory.
+     */
+    public List<Customer> findRange(long afterId, long toId) {
+        List<Customer> range = new ArrayList<>();
+        for (List<Customer> shardRange : shards.fromEachShard(jdbcTemplate -> jdbcTemplate.query(
+                COLUMNS + " WHERE ID > ? AND ID <= ? ORDER BY ID", ROW_MAPPER, afterId, toId))) {
+            range.addAll(shardRange);
+        }
+        if (shards.shardCount() > 1) {
+            range.sort(Comparator.comparing(Customer::getId));
+        }
+        return range;
+    }
+
+    public Optional<Customer> findById(long id) {
+        return shards.fromEachShard(jdbcTemplate -> jdbcTemplate.query(COLUMNS + " WHERE ID = ?", ROW_MAPPER, id))
+                .stream().flatMap(List::stream).findFirst();
+    }
+
+    public Optional<Customer> findByEmail(String email) {
+        return shards.getJdbcTemplate(email).query(COLUMNS + " WHERE EMAIL = ?", ROW_MAPPER, email)
+                .stream().findFirst();
+    }
+
+    /**
+     * Every customer after {@code afterId} in ID order, read from a cursor {@code fetchSize} rows at a time
+     * (over several shards, as merged pages of {@code fetchSize}).
+     */
+    public void streamAfter(long afterId, int fetchSize, Consumer<Customer> consumer) {
+        if (shards.shardCount() > 1) {
+            for (List<Customer> page = findPage(afterId, fetchSize); !page.isEmpty();
+                 page = findPage(page.get(page.size() - 1).getId(), fetchSize)) {
+                page.forEach(consumer);
+            }
+            return;
+        }
+        JdbcTemplate streaming = new JdbcTemplate(shards.getDataSource(0));
+        streaming.setFetchSize(fetchSize);
+        streaming.query(COLUMNS + " WHERE ID > ? ORDER BY ID",
+                (RowCallbackHandler) rs -> consumer.accept(ROW_MAPPER.mapRow(rs, 0)), afterId);
+    }
+
+    public record IdBounds(long min, long max) {
+    }
+}
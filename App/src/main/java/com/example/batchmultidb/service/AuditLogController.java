@@ -0,0 +1,105 @@
+package com.example.batchmultidb.service;
+
+import com.example.batchmultidb.batch.JdbcCustomerAuditSink;
+import com.example.batchmultidb.batch.SegmentedAuditLog;
+import com.example.batchmultidb.datasource.ConnectionFactory;
+import com.example.batchmultidb.datasource.DataStoreType;
+import com.example.batchmultidb.datasource.Workload;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Query and rebuild tooling for the audit log of {@code batch.audit.sink=log}.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/audit-log")
+@RequiredArgsConstructor
+@ConditionalOnExpression("'${batch.mode:local}'=='s3' and '${batch.audit.sink:table}'=='log'")
+public class AuditLogController {
+
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    private final SegmentedAuditLog customerAuditLog;
+    private final ConnectionFactory connectionFactory;
+
+    /**
+     * Entries after {@code afterSequence} in log order, optionally only those of one email.
+     */
+    @GetMapping
+    public List<SegmentedAuditLog.Entry> entries(@RequestParam(name = "email", required = false) String email,
+                                                 @RequestParam(name = "afterSequence", defaultValue = "-1") long afterSequence,
+                                                 @RequestParam(name = "limit", defaultValue = "100") int limit)
+            throws IOException {
+        List<SegmentedAuditLog.Entry> entries = new ArrayList<>();
+        customerAuditLog.scan(afterSequence + 1, entry -> {
+            if (email == null || email.equals(entry.email())) {
+                entries.add(entry);
+            }
+            return entries.size() < limit;
+        });
+        return entries;
+    }
+
+    /**
+     * Replaces the contents of {@code CUSTOMER_AUDIT} with the entries of the log, in one transaction:
+     * if the replay fails, the table keeps its previous rows.
+     * <p>
+     * The log only holds {@code batch.audit.log.retention} worth of segments, while the table keeps
+     * every row. Once a segment has expired, a rebuild would drop the table's rows for the expired
+     * entries for good, so it is refused with 409 Conflict unless {@code force=true} is passed, in
+     * which case the table ends up with the retained entries only.
+     */
+    @PostMapping("/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuild(
+            @RequestParam(name = "force", defaultValue = "false") boolean force) throws IOException {
+        long oldestSequence = customerAuditLog.oldestSequence();
+        if (oldestSequence > 0 && !force) {
+            String error = "Audit log entries before sequence " + oldestSequence + " have expired;"
+                    + " rebuilding would delete their CUSTOMER_AUDIT rows, pass force=true to rebuild anyway";
+            log.warn(error);
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", error, "oldestSequence", oldestSequence));
+        }
+        JdbcTemplate jdbcTemplate = connectionFactory.getJdbcTemplate(DataStoreType.H2, Workload.AUDIT);
+        TransactionTemplate transaction = new TransactionTemplate(
+                new DataSourceTransactionManager(connectionFactory.getDataSource(DataStoreType.H2, Workload.AUDIT)));
+        long[] counts;
+        try {
+            counts = transaction.execute(status -> {
+                int deletedRows = jdbcTemplate.update("DELETE FROM CUSTOMER_AUDIT");
+                try {
+                    return new long[]{deletedRows,
+                            customerAuditLog.replay(new JdbcCustomerAuditSink(jdbcTemplate), REBUILD_BATCH_SIZE)};
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        long deleted = counts[0];
+        long rows = counts[1];
+        log.info("Rebuilt CUSTOMER_AUDIT from the audit log: {} rows replaced by {} (from sequence {})",
+                deleted, rows, oldestSequence);
+        return ResponseEntity.ok(Map.of("deleted", deleted, "rows", rows, "oldestSequence", oldestSequence,
+                "nextSequence", customerAuditLog.nextSequence()));
+    }
+}
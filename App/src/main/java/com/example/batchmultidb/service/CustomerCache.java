@@ -0,0 +1,98 @@
+package com.example.batchmultidb.service;
+
+import com.example.batchmultidb.domain.Customer;
+import com.example.batchmultidb.repository.CustomerReadRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Read-through cache in front of {@link CustomerReadRepository} for lookups by id and by
+ * email. Only hits are cached, so a customer imported after a miss is found on the
+ * next lookup; rows changed by an import are evicted through {@link #invalidate}.
+ */
+public class CustomerCache {
+
+    private final CustomerReadRepository repository;
+    private final Cache<Long, Customer> byId;
+    private final Cache<String, Customer> byEmail;
+    // email of every customer in byId, so invalidation by email needs no scan of byId
+    private final Map<String, Long> idByEmail = new ConcurrentHashMap<>();
+
+    public CustomerCache(CustomerReadRepository repository, long maximumSize, Duration expireAfterWrite) {
+        this.repository = repository;
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .evictionListener((Long id, Customer customer, RemovalCause cause) -> {
+                    if (customer != null) {
+                        idByEmail.remove(customer.getEmail(), id);
+                    }
+                })
+                .recordStats()
+                .build();
+        this.byEmail = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(Metrics.globalRegistry, byId, "customers.byId");
+        CaffeineCacheMetrics.monitor(Metrics.globalRegistry, byEmail, "customers.byEmail");
+    }
+
+    public Optional<Customer> findById(long id) {
+        return Optional.ofNullable(byId.get(id, key -> repository.findById(key)
+                .map(customer -> {
+                    idByEmail.put(customer.getEmail(), key);
+                    return customer;
+                })
+                .orElse(null)));
+    }
+
+    public Optional<Customer> findByEmail(String email) {
+        return Optional.ofNullable(byEmail.get(email, key -> repository.findByEmail(key).orElse(null)));
+    }
+
+    /**
+     * Evicts every cached entry of the given emails, from both views.
+     */
+    public void invalidate(Collection<String> emails) {
+        Set<String> keys = Set.copyOf(emails);
+        byEmail.invalidateAll(keys);
+        // merge writes may update rows without knowing their IDs, so find them by email
+        for (String email : keys) {
+            Long id = idByEmail.remove(email);
+            if (id != null) {
+                byId.invalidate(id);
+            }
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("byId", describe(byId.stats(), byId.estimatedSize()));
+        stats.put("byEmail", describe(byEmail.stats(), byEmail.estimatedSize()));
+        return stats;
+    }
+
+    private static Map<String, Object> describe(CacheStats stats, long size) {
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("size", size);
+        description.put("hits", stats.hitCount());
+        description.put("misses", stats.missCount());
+        description.put("hitRate", stats.hitRate());
+        description.put("evictions", stats.evictionCount());
+        return description;
+    }
+}
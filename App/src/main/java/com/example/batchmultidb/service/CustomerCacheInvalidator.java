@@ -0,0 +1,39 @@
+package com.example.batchmultidb.service;
+
+import com.example.batchmultidb.domain.Customer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.batch.core.ItemWriteListener;
+import org.springframework.batch.item.Chunk;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Evicts the customers of each written chunk from the {@link CustomerCache} once the
+ * chunk transaction has committed, so lookups never see rows that were rolled back.
+ */
+@RequiredArgsConstructor
+public class CustomerCacheInvalidator implements ItemWriteListener<Customer> {
+
+    private final CustomerCache cache;
+
+    @Override
+    public void afterWrite(Chunk<? extends Customer> items) {
+        List<String> emails = new ArrayList<>(items.size());
+        for (Customer customer : items) {
+            emails.add(customer.getEmail());
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cache.invalidate(emails);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cache.invalidate(emails);
+            }
+        });
+    }
+}
@@ -1,23 +1,88 @@
 package com.example.batchmultidb.service;
 
 import com.example.batchmultidb.domain.Customer;
-import com.example.batchmultidb.repository.CustomerRepository;
+import com.example.batchmultidb.repository.CustomerReadRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/customers")
 @RequiredArgsConstructor
 public class CustomerController {
 
-    private final CustomerRepository repository;
+    static final String NEXT_AFTER_ID_HEADER = "X-Next-After-Id";
 
+    private final CustomerReadRepository repository;
+    private final CustomerCache cache;
+    private final ObjectMapper objectMapper;
+
+    @Value("${customers.page.max-limit:10000}")
+    private int maxLimit;
+
+    @Value("${customers.stream.fetch-size:1000}")
+    private int streamFetchSize;
+
+    /**
+     * One keyset page ordered by ID; pass the {@value #NEXT_AFTER_ID_HEADER} response header
+     * back as {@code afterId} to get the next page. The header is absent on the last page.
+     */
     @GetMapping
-    public List<Customer> list() {
-        return repository.findAll();
+    public ResponseEntity<List<Customer>> list(@RequestParam(name = "afterId", defaultValue = "0") long afterId,
+                                               @RequestParam(name = "limit", defaultValue = "1000") int limit) {
+        int pageSize = Math.max(1, Math.min(limit, maxLimit));
+        List<Customer> page = repository.findPage(afterId, pageSize);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.size() == pageSize) {
+            response.header(NEXT_AFTER_ID_HEADER, String.valueOf(page.get(page.size() - 1).getId()));
+        }
+        return response.body(page);
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<Customer> get(@PathVariable("id") long id) {
+        return ResponseEntity.of(cache.findById(id));
+    }
+
+    @GetMapping("/by-email")
+    public ResponseEntity<Customer> getByEmail(@RequestParam("email") String email) {
+        return ResponseEntity.of(cache.findByEmail(email));
+    }
+
+    @GetMapping("/cache-stats")
+    public Map<String, Object> cacheStats() {
+        return cache.stats();
+    }
+
+    /**
+     * The whole table as newline-delimited JSON, streamed from a JDBC cursor so memory
+     * use does not depend on the table size.
+     */
+    @GetMapping(value = "/stream", produces = "application/x-ndjson")
+    public StreamingResponseBody stream(@RequestParam(name = "afterId", defaultValue = "0") long afterId) {
+        return out -> {
+            try (SequenceWriter writer = objectMapper.writer().withRootValueSeparator("\n").writeValues(out)) {
+                repository.streamAfter(afterId, streamFetchSize, customer -> {
+                    try {
+                        writer.write(customer);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
     }
 }
@@ -1,91 +1,211 @@
 package com.example.batchmultidb.service;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.batch.core.*;
+import org.springframework.batch.core.explore.JobExplorer;
 import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.batch.core.repository.JobExecutionAlreadyRunningException;
+import org.springframework.batch.core.repository.JobInstanceAlreadyCompleteException;
+import org.springframework.batch.core.repository.JobRestartException;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
+import java.time.Duration;
 import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Slf4j
 @RestController
 @RequestMapping("/jobs")
-@RequiredArgsConstructor
 public class CustomerJobController {
 
     private final JobLauncher jobLauncher;
-
-    @Qualifier("s3ImportCustomersJob")
+    private final JobExplorer jobExplorer;
     private final Optional<Job> s3ImportCustomersJob;
-
-    @Qualifier("oracleImportCustomersJob")
     private final Optional<Job> oracleImportCustomersJob;
-
-    @Qualifier("localImportCustomersJob")
     private final Optional<Job> localImportCustomersJob;
+    private final Optional<Job> exportCustomersJob;
+
+    public CustomerJobController(@Qualifier("asyncJobLauncher") JobLauncher jobLauncher,
+                                 JobExplorer jobExplorer,
+                                 @Qualifier("s3ImportCustomersJob") Optional<Job> s3ImportCustomersJob,
+                                 @Qualifier("oracleImportCustomersJob") Optional<Job> oracleImportCustomersJob,
+                                 @Qualifier("localImportCustomersJob") Optional<Job> localImportCustomersJob,
+                                 @Qualifier("exportCustomersJob") Optional<Job> exportCustomersJob) {
+        this.jobLauncher = jobLauncher;
+        this.jobExplorer = jobExplorer;
+        this.s3ImportCustomersJob = s3ImportCustomersJob;
+        this.oracleImportCustomersJob = oracleImportCustomersJob;
+        this.localImportCustomersJob = localImportCustomersJob;
+        this.exportCustomersJob = exportCustomersJob;
+    }
 
     @PostMapping("/import-customers")
-    public String triggerJob() throws Exception {
+    public ResponseEntity<Map<String, Object>> triggerJob() throws Exception {
         // Try local -> oracle -> s3 depending on active mode
         Job jobToRun = localImportCustomersJob
                 .or(() -> oracleImportCustomersJob)
                 .or(() -> s3ImportCustomersJob)
                 .orElseThrow(() -> new IllegalStateException("No import job configured"));
-
-        JobParameters params = new JobParametersBuilder()
-                .addString("run.id", Instant.now().toString())
-                .toJobParameters();
-
-        JobExecution execution = jobLauncher.run(jobToRun, params);
-        log.info("Job started with ID: {} and name: {}", execution.getJobId(), jobToRun.getName());
-        return "Job started with ID: " + execution.getJobId() + " (Job: " + jobToRun.getName() + ")";
+        return launch(jobToRun);
     }
 
     @PostMapping("/import-customers-s3")
-    public String triggerS3Job() throws Exception {
+    public ResponseEntity<Map<String, Object>> triggerS3Job() throws Exception {
         Job job = s3ImportCustomersJob.orElseThrow(() -> 
             new IllegalStateException("S3 import job not available. Ensure batch.mode=s3 is configured.")
         );
-
-        JobParameters params = new JobParametersBuilder()
-                .addString("run.id", Instant.now().toString())
-                .toJobParameters();
-
-        JobExecution execution = jobLauncher.run(job, params);
-        log.info("S3 job started with ID: {}", execution.getJobId());
-        return "S3 Job started with ID: " + execution.getJobId();
+        return launch(job);
     }
 
     @PostMapping("/import-customers-oracle")
-    public String triggerOracleJob() throws Exception {
+    public ResponseEntity<Map<String, Object>> triggerOracleJob() throws Exception {
         Job job = oracleImportCustomersJob.orElseThrow(() ->
                 new IllegalStateException("Oracle import job not available. Ensure batch.mode=oracle is configured.")
         );
-
-        JobParameters params = new JobParametersBuilder()
-                .addString("run.id", Instant.now().toString())
-                .toJobParameters();
-
-        JobExecution execution = jobLauncher.run(job, params);
-        log.info("Oracle job started with ID: {}", execution.getJobId());
-        return "Oracle Job started with ID: " + execution.getJobId();
+        return launch(job);
     }
 
     @PostMapping("/import-customers-local")
-    public String triggerLocalJob() throws Exception {
+    public ResponseEntity<Map<String, Object>> triggerLocalJob() throws Exception {
         Job job = localImportCustomersJob.orElseThrow(() -> 
             new IllegalStateException("Local import job not available. Ensure batch.mode=local is configured.")
         );
+        return launch(job);
+    }
+
+    /**
+     * Exports CUSTOMER to {@code key} in the bucket, {@code batch.export.key} by default.
+     */
+    @PostMapping("/export-customers")
+    public ResponseEntity<Map<String, Object>> triggerExportJob(
+            @RequestParam(name = "key", required = false) String key) throws Exception {
+        Job job = exportCustomersJob.orElseThrow(() ->
+                new IllegalStateException("Export job not available. Ensure batch.export.enabled is not false.")
+        );
+        JobParametersBuilder params = new JobParametersBuilder()
+                .addString("run.id", Instant.now().toString());
+        if (key != null) {
+            params.addString("key", key);
+        }
+        return launch(job, params.toJobParameters());
+    }
+
+    /**
+     * Runs a failed or stopped execution again with the same parameters, from where it stopped
+     * (an export resumes after its last uploaded part).
+     */
+    @PostMapping("/{id}/restart")
+    public ResponseEntity<Map<String, Object>> restart(@PathVariable("id") long id) throws Exception {
+        JobExecution execution = jobExplorer.getJobExecution(id);
+        if (execution == null) {
+            return ResponseEntity.notFound().build();
+        }
+        String jobName = execution.getJobInstance().getJobName();
+        Job job = Stream.of(localImportCustomersJob, oracleImportCustomersJob, s3ImportCustomersJob, exportCustomersJob)
+                .flatMap(Optional::stream)
+                .filter(candidate -> candidate.getName().equals(jobName))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Job " + jobName + " is not available in this mode"));
+        return launch(job, execution.getJobParameters());
+    }
+
+    /**
+     * Progress of one job execution: status plus read/write counts and items per second,
+     * in total and per step.
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<Map<String, Object>> status(@PathVariable("id") long id) {
+        JobExecution execution = jobExplorer.getJobExecution(id);
+        if (execution == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        List<StepExecution> steps = new ArrayList<>(execution.getStepExecutions());
+        steps.sort(Comparator.comparing(StepExecution::getId));
+        // a partition manager only reports its workers' counts once they are done, so add up the workers
+        List<StepExecution> counted = steps.stream().anyMatch(step -> step.getStepName().contains(":"))
+                ? steps.stream().filter(step -> step.getStepName().contains(":")).toList()
+                : steps;
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("executionId", execution.getId());
+        body.put("jobName", execution.getJobInstance().getJobName());
+        body.put("status", execution.getStatus());
+        body.put("exitStatus", execution.getExitStatus().getExitCode());
+        body.put("startTime", execution.getStartTime());
+        body.put("endTime", execution.getEndTime());
+        body.put("readCount", counted.stream().mapToLong(StepExecution::getReadCount).sum());
+        body.put("writeCount", counted.stream().mapToLong(StepExecution::getWriteCount).sum());
+        body.put("itemsPerSecond", itemsPerSecond(
+                counted.stream().mapToLong(StepExecution::getWriteCount).sum(),
+                execution.getStartTime(), execution.getEndTime()));
+        body.put("steps", steps.stream().map(CustomerJobController::stepStatus).toList());
+        return ResponseEntity.ok(body);
+    }
 
-        JobParameters params = new JobParametersBuilder()
+    private ResponseEntity<Map<String, Object>> launch(Job job) throws Exception {
+        return launch(job, new JobParametersBuilder()
                 .addString("run.id", Instant.now().toString())
-                .toJobParameters();
+                .toJobParameters());
+    }
 
+    private ResponseEntity<Map<String, Object>> launch(Job job, JobParameters params) throws Exception {
         JobExecution execution = jobLauncher.run(job, params);
-        log.info("Local job started with ID: {}", execution.getJobId());
-        return "Local Job started with ID: " + execution.getJobId();
+        log.info("Job {} launched with execution ID: {}", job.getName(), execution.getId());
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("executionId", execution.getId());
+        body.put("jobName", job.getName());
+        body.put("status", execution.getStatus());
+        return ResponseEntity.accepted()
+                .location(URI.create("/jobs/" + execution.getId()))
+                .body(body);
+    }
+
+    @ExceptionHandler({JobExecutionAlreadyRunningException.class, JobInstanceAlreadyCompleteException.class,
+            JobRestartException.class})
+    public ResponseEntity<Map<String, Object>> notRestartable(JobExecutionException e) {
+        log.warn(e.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+    }
+
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<Map<String, Object>> admissionQueueFull(TaskRejectedException e) {
+        log.warn(e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", e.getMessage()));
+    }
+
+    private static Map<String, Object> stepStatus(StepExecution step) {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("stepName", step.getStepName());
+        status.put("status", step.getStatus());
+        status.put("readCount", step.getReadCount());
+        status.put("filterCount", step.getFilterCount());
+        status.put("writeCount", step.getWriteCount());
+        status.put("skipCount", step.getSkipCount());
+        status.put("commitCount", step.getCommitCount());
+        status.put("rollbackCount", step.getRollbackCount());
+        status.put("itemsPerSecond", itemsPerSecond(step.getWriteCount(), step.getStartTime(), step.getEndTime()));
+        return status;
+    }
+
+    private static long itemsPerSecond(long items, LocalDateTime start, LocalDateTime end) {
+        if (start == null) {
+            return 0;
+        }
+        long millis = Duration.between(start, end != null ? end : LocalDateTime.now()).toMillis();
+        return millis > 0 ? items * 1000 / millis : 0;
     }
 }
@@ -0,0 +1,93 @@
+package com.example.batchmultidb.service;
+
+import com.example.batchmultidb.batch.ChunkMetricsListener;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobExecutionException;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.converter.DefaultJobParametersConverter;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.ExitCodeGenerator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * One-shot runner of the {@code cli} profile: launches the import job of {@code batch.mode} once,
+ * synchronously, and hands its status to {@code BatchMultiDbApplication} as the process exit code
+ * (0 completed, 1 failed, 2 stopped, 3 not launched). Non-option arguments are job parameters in
+ * Spring Batch's {@code name=value[,type[,identifying]]} notation; {@code run.id} defaults to now.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "batch.cli.enabled", havingValue = "true")
+public class ImportJobRunner implements ApplicationRunner, ExitCodeGenerator {
+
+    static final int EXIT_COMPLETED = 0;
+    static final int EXIT_FAILED = 1;
+    static final int EXIT_STOPPED = 2;
+    static final int EXIT_NOT_LAUNCHED = 3;
+
+    private final JobLauncher jobLauncher;
+    private final Job job;
+    private final ChunkMetricsListener chunkMetricsListener;
+    private int exitCode = EXIT_NOT_LAUNCHED;
+
+    public ImportJobRunner(@Qualifier("jobLauncher") JobLauncher jobLauncher,
+                           @Qualifier("s3ImportCustomersJob") Optional<Job> s3ImportCustomersJob,
+                           @Qualifier("oracleImportCustomersJob") Optional<Job> oracleImportCustomersJob,
+                           @Qualifier("localImportCustomersJob") Optional<Job> localImportCustomersJob,
+                           ChunkMetricsListener chunkMetricsListener) {
+        this.jobLauncher = jobLauncher;
+        this.job = localImportCustomersJob
+                .or(() -> oracleImportCustomersJob)
+                .or(() -> s3ImportCustomersJob)
+                .orElseThrow(() -> new IllegalStateException("No import job configured"));
+        this.chunkMetricsListener = chunkMetricsListener;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long startedAt = ManagementFactory.getRuntimeMXBean().getUptime();
+        JobParameters parameters = new JobParametersBuilder()
+                .addString("run.id", Instant.now().toString())
+                .addJobParameters(new DefaultJobParametersConverter().getJobParameters(
+                        StringUtils.splitArrayElementsIntoProperties(args.getNonOptionArgs().toArray(String[]::new), "=")))
+                .toJobParameters();
+        JobExecution execution;
+        try {
+            execution = jobLauncher.run(job, parameters);
+        } catch (JobExecutionException e) {
+            log.error("Job {} not launched with {}: {}", job.getName(), parameters, e.getMessage());
+            return;
+        }
+        exitCode = exitCode(execution.getStatus());
+        long firstWrite = chunkMetricsListener.firstWriteUptimeMillis();
+        log.info("Job {} {}: started after {} ms, first row written after {}, finished after {} ms (JVM uptime)",
+                job.getName(), execution.getStatus(), startedAt, firstWrite < 0 ? "-" : firstWrite + " ms",
+                ManagementFactory.getRuntimeMXBean().getUptime());
+    }
+
+    @Override
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    static int exitCode(BatchStatus status) {
+        return switch (status) {
+            case COMPLETED -> EXIT_COMPLETED;
+            case STOPPING, STOPPED -> EXIT_STOPPED;
+            default -> EXIT_FAILED;
+        };
+    }
+}
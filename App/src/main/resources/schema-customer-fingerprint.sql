@@ -0,0 +1,6 @@
+-- Content fingerprints of the imported CUSTOMER rows (batch.delta.enabled), keyed by a hash of EMAIL.
+-- Must live in the same database as CUSTOMER; the first delta import writes every row and fills it
+CREATE TABLE IF NOT EXISTS CUSTOMER_FINGERPRINT (
+    EMAIL_HASH   BIGINT PRIMARY KEY,
+    CONTENT_HASH BIGINT NOT NULL
+);
@@ -1,6 +1,10 @@
+-- IDs are handed out in blocks of 50 (see Customer.ID_ALLOCATION_SIZE)
+-- (databases filled before the sequence existed are moved past MAX(ID) at startup, see CustomerSequenceMigration)
+CREATE SEQUENCE IF NOT EXISTS CUSTOMER_SEQ START WITH 1 INCREMENT BY 50;
+
 -- Create CUSTOMER table for local/H2 mode
 CREATE TABLE IF NOT EXISTS CUSTOMER (
-    ID IDENTITY PRIMARY KEY,
+    ID BIGINT PRIMARY KEY,
     FIRST_NAME VARCHAR(100) NOT NULL,
     LAST_NAME  VARCHAR(100) NOT NULL,
     EMAIL      VARCHAR(200) NOT NULL UNIQUE
@@ -0,0 +1,16 @@
+-- Partitions a manager step hands to worker nodes (batch.partition.remote.enabled), next to the
+-- job repository tables every node shares. Nodes claim QUEUED rows with a conditional UPDATE
+CREATE TABLE IF NOT EXISTS BATCH_PARTITION_QUEUE (
+    STEP_EXECUTION_ID         BIGINT PRIMARY KEY,
+    JOB_EXECUTION_ID          BIGINT NOT NULL,
+    MANAGER_STEP_EXECUTION_ID BIGINT NOT NULL,
+    WORKER_STEP               VARCHAR(100) NOT NULL,
+    STATUS                    VARCHAR(10) NOT NULL,
+    CLAIMED_BY                VARCHAR(100),
+    QUEUED_AT                 TIMESTAMP NOT NULL,
+    CLAIMED_AT                TIMESTAMP,
+    FINISHED_AT               TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS BATCH_PARTITION_QUEUE_STATUS_IX ON BATCH_PARTITION_QUEUE (STATUS, STEP_EXECUTION_ID);
+CREATE INDEX IF NOT EXISTS BATCH_PARTITION_QUEUE_MANAGER_IX ON BATCH_PARTITION_QUEUE (MANAGER_STEP_EXECUTION_ID);
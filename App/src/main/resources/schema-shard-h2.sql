@@ -0,0 +1,8 @@
+-- CUSTOMER table of an H2 shard (batch.sharding.shards), run by the shard URL's INIT=RUNSCRIPT.
+-- IDs come from CUSTOMER_SEQ in the primary database, so shards have no sequence of their own
+CREATE TABLE IF NOT EXISTS CUSTOMER (
+    ID BIGINT PRIMARY KEY,
+    FIRST_NAME VARCHAR(100) NOT NULL,
+    LAST_NAME  VARCHAR(100) NOT NULL,
+    EMAIL      VARCHAR(200) NOT NULL UNIQUE
+);
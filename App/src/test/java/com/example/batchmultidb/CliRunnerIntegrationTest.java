@@ -0,0 +1,55 @@
+package com.example.batchmultidb;
+
+import com.example.batchmultidb.batch.ChunkMetricsListener;
+import com.example.batchmultidb.repository.CustomerRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The {@code cli} profile as {@code BatchMultiDbApplication.main} runs it, minus the {@code System.exit}.
+ */
+class CliRunnerIntegrationTest {
+
+    @Test
+    void runsTheImportJobOnceAndExitsWithZero() {
+        ConfigurableApplicationContext context = run("--batch.mode=local");
+
+        assertThat(context.getBean(CustomerRepository.class).count()).isEqualTo(8);
+        assertThat(context.getBean(ChunkMetricsListener.class).firstWriteUptimeMillis()).isPositive();
+        assertThat(SpringApplication.exit(context)).isZero();
+    }
+
+    @Test
+    void exitsWithOneWhenTheJobFails() {
+        ConfigurableApplicationContext context = run("--batch.mode=local",
+                "--local.csv.path=file:target/does-not-exist.csv");
+
+        assertThat(SpringApplication.exit(context)).isEqualTo(1);
+    }
+
+    @Test
+    void leavesTheOracleSchemaAlone() {
+        // the H2 scripts must not run against the Oracle primary DataSource of oracle and s3 modes
+        for (String mode : new String[]{"oracle", "s3"}) {
+            try (ConfigurableApplicationContext context = new SpringApplicationBuilder(Object.class)
+                    .profiles(mode, "cli")
+                    .web(WebApplicationType.NONE)
+                    .run()) {
+                assertThat(context.getEnvironment().getProperty("spring.sql.init.mode")).isEqualTo("never");
+                assertThat(context.getEnvironment().getProperty("spring.sql.init.continue-on-error"))
+                        .isEqualTo("false");
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext run(String... args) {
+        return new SpringApplicationBuilder(BatchMultiDbApplication.class)
+                .profiles("local", "cli")
+                .run(args);
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.batchmultidb;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import javax.sql.DataSource;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("local")
+@TestPropertySource(properties = {
+        "batch.mode=local",
+        "spring.batch.job.enabled=false",
+        "spring.batch.jdbc.initialize-schema=always"
+})
+class CustomerApiIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JobLauncher jobLauncher;
+
+    @Autowired
+    @Qualifier("localImportCustomersJob")
+    private Job localJob;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @BeforeEach
+    void initializeBatchSchema() {
+        ResourceDatabasePopulator populator = new ResourceDatabasePopulator(
+                new ClassPathResource("org/springframework/batch/core/schema-h2.sql")
+        );
+        populator.setContinueOnError(true); // ignore if schema already initialized
+        populator.execute(dataSource);
+    }
+
+    @Test
+    void readsImportedCustomersThroughTheApiReadPool() throws Exception {
+        jobLauncher.run(localJob, new JobParametersBuilder()
+                .addString("run.id", UUID.randomUUID().toString())
+                .toJobParameters());
+
+        MvcResult page = mockMvc.perform(get("/customers").param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("X-Next-After-Id"))
+                .andReturn();
+        JsonNode customers = objectMapper.readTree(page.getResponse().getContentAsString());
+        assertThat(customers).hasSize(5);
+
+        mockMvc.perform(get("/customers/by-email").param("email", "jane.smith@example.com"))
+                .andExpect(status().isOk());
+
+        MvcResult stream = mockMvc.perform(get("/customers/stream")).andReturn();
+        String ndjson = mockMvc.perform(asyncDispatch(stream)).andReturn().getResponse().getContentAsString();
+        assertThat(ndjson.lines()).hasSize(8);
+
+        assertThat(meterRegistry.get("hikaricp.connections.acquire").tag("pool", "h2-api-read").timer().count())
+                .isPositive();
+        assertThat(meterRegistry.get("hikaricp.connections.max").tag("pool", "h2-batch-write").gauge().value())
+                .isEqualTo(10);
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.batchmultidb;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("local")
+@TestPropertySource(properties = {
+        "batch.mode=local",
+        "spring.batch.job.enabled=false",
+        "spring.batch.jdbc.initialize-schema=always"
+})
+class JobControllerIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @BeforeEach
+    void initializeBatchSchema() {
+        ResourceDatabasePopulator populator = new ResourceDatabasePopulator(
+                new ClassPathResource("org/springframework/batch/core/schema-h2.sql")
+        );
+        populator.setContinueOnError(true); // ignore if schema already initialized
+        populator.execute(dataSource);
+    }
+
+    @Test
+    void launchReturnsAcceptedAndStatusReportsProgress() throws Exception {
+        MvcResult launched = mockMvc.perform(post("/jobs/import-customers-local"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().exists("Location"))
+                .andReturn();
+        long executionId = json(launched).get("executionId").asLong();
+
+        JsonNode job = null;
+        for (int i = 0; i < 300; i++) {
+            job = json(mockMvc.perform(get("/jobs/{id}", executionId)).andExpect(status().isOk()).andReturn());
+            if (!job.get("status").asText().matches("STARTING|STARTED")) {
+                break;
+            }
+            Thread.sleep(100);
+        }
+
+        assertThat(job.get("status").asText()).isEqualTo("COMPLETED");
+        assertThat(job.get("readCount").asLong()).isEqualTo(8);
+        assertThat(job.get("writeCount").asLong()).isEqualTo(8);
+        assertThat(job.get("steps")).singleElement()
+                .satisfies(step -> assertThat(step.get("stepName").asText()).isEqualTo("localCustomerImportStep"));
+    }
+
+    @Test
+    void unknownExecutionIsNotFound() throws Exception {
+        mockMvc.perform(get("/jobs/{id}", Long.MAX_VALUE)).andExpect(status().isNotFound());
+    }
+
+    private JsonNode json(MvcResult result) throws Exception {
+        return objectMapper.readTree(result.getResponse().getContentAsString());
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.batchmultidb;
+
+import com.example.batchmultidb.batch.BufferedJobRepository;
+import com.example.batchmultidb.repository.CustomerRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import javax.sql.DataSource;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("local")
+@TestPropertySource(properties = {
+        "batch.mode=local",
+        "batch.writer.strategy=merge",
+        "batch.job-repository.mode=buffered",
+        "spring.main.web-application-type=none",
+        "spring.batch.job.enabled=false",
+        "spring.batch.jdbc.initialize-schema=always"
+})
+class LocalBufferedJobRepositoryIntegrationTest {
+
+    @Autowired
+    private JobLauncher jobLauncher;
+
+    @Autowired
+    @Qualifier("localImportCustomersJob")
+    private Job localJob;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private JobRepository jobRepository;
+
+    @Autowired
+    private JobExplorer jobExplorer;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @BeforeEach
+    void initializeBatchSchema() {
+        ResourceDatabasePopulator populator = new ResourceDatabasePopulator(
+                new ClassPathResource("org/springframework/batch/core/schema-h2.sql")
+        );
+        populator.setContinueOnError(true); // ignore if schema already initialized
+        populator.execute(dataSource);
+    }
+
+    @Test
+    void importsAndPersistsTheFinalStepProgress() throws Exception {
+        assertThat(jobRepository).isInstanceOf(BufferedJobRepository.class);
+
+        JobExecution execution = jobLauncher.run(localJob, new JobParametersBuilder()
+                .addString("run.id", UUID.randomUUID().toString())
+                .toJobParameters());
+
+        assertThat(execution.getExitStatus()).isEqualTo(ExitStatus.COMPLETED);
+        assertThat(customerRepository.count()).isEqualTo(8);
+        // the progress held in memory during the step is in the job repository once it ends
+        StepExecution stored = jobExplorer.getJobExecution(execution.getId())
+                .getStepExecutions().iterator().next();
+        assertThat(stored.getExitStatus()).isEqualTo(ExitStatus.COMPLETED);
+        assertThat(stored.getReadCount()).isEqualTo(8);
+        assertThat(stored.getWriteCount() + stored.getFilterCount()).isEqualTo(8);
+        assertThat(stored.getCommitCount()).isPositive();
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.batchmultidb;
+
+import com.example.batchmultidb.repository.CustomerRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("local")
+@TestPropertySource(properties = {
+        "batch.mode=local",
+        "batch.delta.enabled=true",
+        "local.csv.path=file:" + LocalDeltaModeIntegrationTest.INPUT,
+        "spring.main.web-application-type=none",
+        "spring.batch.job.enabled=false"
+})
+class LocalDeltaModeIntegrationTest {
+
+    static final String INPUT = "target/delta-import/customers.csv";
+
+    @Autowired
+    private JobLauncher jobLauncher;
+
+    @Autowired
+    @Qualifier("localImportCustomersJob")
+    private Job localJob;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Test
+    void writesOnlyInsertedAndChangedRows() throws Exception {
+        writeInput("""
+                firstName,lastName,email
+                John,Doe,john.doe@example.com
+                Jane,Smith,jane.smith@example.com
+                Michael,Johnson,michael.johnson@example.com
+                """);
+        assertThat(run()).extracting(StepExecution::getWriteCount, StepExecution::getFilterCount)
+                .containsExactly(3L, 0L);
+
+        assertThat(run()).extracting(StepExecution::getWriteCount, StepExecution::getFilterCount)
+                .containsExactly(0L, 3L);
+
+        writeInput("""
+                firstName,lastName,email
+                John,Doe,john.doe@example.com
+                Jane,Jones,jane.smith@example.com
+                Michael,Johnson,michael.johnson@example.com
+                Sarah,Williams,sarah.williams@example.com
+                """);
+        assertThat(run()).extracting(StepExecution::getWriteCount, StepExecution::getFilterCount)
+                .containsExactly(2L, 2L);
+        assertThat(customerRepository.count()).isEqualTo(4);
+        assertThat(customerRepository.findAll())
+                .filteredOn(customer -> customer.getEmail().equals("jane.smith@example.com"))
+                .singleElement()
+                .satisfies(customer -> assertThat(customer.getLastName()).isEqualTo("Jones"));
+    }
+
+    private StepExecution run() throws Exception {
+        JobExecution execution = jobLauncher.run(localJob, new JobParametersBuilder()
+                .addString("run.id", UUID.randomUUID().toString())
+                .toJobParameters());
+        assertThat(execution.getExitStatus()).isEqualTo(ExitStatus.COMPLETED);
+        return execution.getStepExecutions().iterator().next();
+    }
+
+    private static void writeInput(String csv) throws Exception {
+        Path input = Path.of(INPUT);
+        Files.createDirectories(input.getParent());
+        Files.writeString(input, csv);
+    }
+}
@@ -2,6 +2,8 @@ package com.example.batchmultidb;
 
 import com.example.batchmultidb.domain.Customer;
 import com.example.batchmultidb.repository.CustomerRepository;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.core.io.ClassPathResource;
@@ -69,4 +71,38 @@ class LocalModeIntegrationTest {
                 .extracting(Customer::getEmail)
                 .contains("john.doe@example.com", "jane.smith@example.com");
     }
+
+    @Test
+    void rerunFiltersEmailsAlreadyImported() throws Exception {
+        jobLauncher.run(localJob, new JobParametersBuilder()
+                .addString("run.id", UUID.randomUUID().toString())
+                .toJobParameters());
+
+        JobExecution rerun = jobLauncher.run(localJob, new JobParametersBuilder()
+                .addString("run.id", UUID.randomUUID().toString())
+                .toJobParameters());
+
+        assertThat(rerun.getExitStatus()).isEqualTo(ExitStatus.COMPLETED);
+        assertThat(rerun.getStepExecutions()).singleElement()
+                .satisfies(step -> assertThat(step.getFilterCount()).isEqualTo(8));
+        assertThat(customerRepository.count()).isEqualTo(8);
+    }
+
+    @Test
+    void publishesChunkAndStoreWriteMetrics() throws Exception {
+        jobLauncher.run(localJob, new JobParametersBuilder()
+                .addString("run.id", UUID.randomUUID().toString())
+                .toJobParameters());
+
+        for (String leg : new String[]{"batch.chunk.read", "batch.chunk.process", "batch.chunk.write"}) {
+            Timer timer = Metrics.globalRegistry.find(leg).tag("step", "localCustomerImportStep").timer();
+            assertThat(timer).as(leg).isNotNull();
+            assertThat(timer.count()).as(leg).isPositive();
+        }
+        assertThat(Metrics.globalRegistry.find("batch.store.write").tag("store", "H2").timer())
+                .isNotNull()
+                .satisfies(timer -> assertThat(timer.count()).isPositive());
+        assertThat(Metrics.globalRegistry.find("batch.chunk.size").tag("step", "localCustomerImportStep").gauge())
+                .isNotNull();
+    }
 }
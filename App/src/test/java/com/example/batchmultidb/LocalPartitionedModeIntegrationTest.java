@@ -0,0 +1,91 @@
+package com.example.batchmultidb;
+
+import com.example.batchmultidb.domain.Customer;
+import com.example.batchmultidb.repository.CustomerRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import javax.sql.DataSource;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("local")
+@TestPropertySource(properties = {
+        "batch.mode=local",
+        "batch.partition.enabled=true",
+        "batch.partition.grid-size=4",
+        "batch.partition.threads=4",
+        "spring.main.web-application-type=none",
+        "spring.batch.job.enabled=false",
+        "spring.batch.jdbc.initialize-schema=always"
+})
+class LocalPartitionedModeIntegrationTest {
+
+    @Autowired
+    private JobLauncher jobLauncher;
+
+    @Autowired
+    @Qualifier("localImportCustomersJob")
+    private Job localJob;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @BeforeEach
+    void initializeBatchSchema() {
+        ResourceDatabasePopulator populator = new ResourceDatabasePopulator(
+                new ClassPathResource("org/springframework/batch/core/schema-h2.sql")
+        );
+        populator.setContinueOnError(true); // ignore if schema already initialized
+        populator.execute(dataSource);
+    }
+
+    @Test
+    void importsLocalCsvIntoH2AcrossPartitions() throws Exception {
+        JobParameters params = new JobParametersBuilder()
+                .addString("run.id", UUID.randomUUID().toString())
+                .toJobParameters();
+
+        JobExecution execution = jobLauncher.run(localJob, params);
+
+        assertThat(execution.getExitStatus()).isEqualTo(ExitStatus.COMPLETED);
+        assertThat(execution.getStepExecutions())
+                .filteredOn(step -> step.getStepName().startsWith("localCustomerWorkerStep"))
+                .hasSizeGreaterThan(1)
+                .extracting(StepExecution::getWriteCount)
+                .allMatch(count -> count > 0);
+        assertThat(customerRepository.count()).isEqualTo(8);
+        assertThat(customerRepository.findAll())
+                .extracting(Customer::getEmail)
+                .contains("john.doe@example.com", "jane.smith@example.com");
+    }
+
+    @Test
+    void keepsBootsApplicationTaskExecutor() {
+        // the partition threads are not an Executor bean, so MVC async requests keep their pool
+        assertThat(applicationContext.containsBean("applicationTaskExecutor")).isTrue();
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.batchmultidb;
+
+import com.example.batchmultidb.repository.CustomerRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * One manager node (not polling the queue itself) and two worker nodes, each its own
+ * application context, sharing one H2 database.
+ */
+@SpringBootTest
+@ActiveProfiles("local")
+@TestPropertySource(properties = {
+        "batch.mode=local",
+        "batch.partition.enabled=true",
+        "batch.partition.grid-size=4",
+        "batch.partition.remote.enabled=true",
+        "batch.partition.remote.worker=false",
+        "batch.partition.remote.poll-interval=100ms",
+        "spring.datasource.h2.url=" + RemotePartitionedModeIntegrationTest.SHARED_DATABASE,
+        "spring.sql.init.continue-on-error=true",
+        "spring.main.web-application-type=none",
+        "spring.batch.job.enabled=false"
+})
+class RemotePartitionedModeIntegrationTest {
+
+    static final String SHARED_DATABASE = "jdbc:h2:mem:remote-partitions;DB_CLOSE_DELAY=-1;MODE=Oracle";
+
+    @Autowired
+    private JobLauncher jobLauncher;
+
+    @Autowired
+    @Qualifier("localImportCustomersJob")
+    private Job localJob;
+
+    @Autowired
+    private JobExplorer jobExplorer;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private List<ConfigurableApplicationContext> workers;
+
+    @BeforeEach
+    void startWorkerNodes() {
+        workers = List.of(startWorker("worker-a"), startWorker("worker-b"));
+    }
+
+    @AfterEach
+    void stopWorkerNodes() {
+        workers.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    void workerNodesRunEveryPartitionOnce() throws Exception {
+        JobExecution execution = jobLauncher.run(localJob, new JobParametersBuilder()
+                .addString("run.id", UUID.randomUUID().toString())
+                .toJobParameters());
+
+        assertThat(execution.getExitStatus()).isEqualTo(ExitStatus.COMPLETED);
+        assertThat(customerRepository.count()).isEqualTo(8);
+        assertThat(jobExplorer.getJobExecution(execution.getId()).getStepExecutions())
+                .filteredOn(step -> step.getStepName().startsWith("localCustomerWorkerStep:"))
+                .hasSizeGreaterThan(1)
+                .extracting(StepExecution::getStatus)
+                .containsOnly(BatchStatus.COMPLETED);
+
+        List<Map<String, Object>> queue = new JdbcTemplate(dataSource).queryForList(
+                "SELECT STATUS, CLAIMED_BY FROM BATCH_PARTITION_QUEUE WHERE JOB_EXECUTION_ID = ?", execution.getId());
+        assertThat(queue).hasSizeGreaterThan(1)
+                .allSatisfy(row -> {
+                    assertThat(row.get("STATUS")).isEqualTo("COMPLETED");
+                    assertThat(row.get("CLAIMED_BY")).isIn("worker-a", "worker-b");
+                });
+    }
+
+    private static ConfigurableApplicationContext startWorker(String nodeId) {
+        return new SpringApplicationBuilder(BatchMultiDbApplication.class)
+                .profiles("local")
+                .run("--batch.mode=local",
+                        "--batch.partition.enabled=true",
+                        "--batch.partition.threads=2",
+                        "--batch.partition.remote.enabled=true",
+                        "--batch.partition.remote.poll-interval=100ms",
+                        "--batch.partition.remote.node-id=" + nodeId,
+                        "--spring.datasource.h2.url=" + SHARED_DATABASE,
+                        "--spring.sql.init.continue-on-error=true",
+                        "--spring.main.web-application-type=none",
+                        "--spring.batch.job.enabled=false");
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.batchmultidb;
+
+import com.example.batchmultidb.datasource.ConnectionFactory;
+import com.example.batchmultidb.datasource.DataStoreType;
+import com.example.batchmultidb.datasource.ShardRouter;
+import com.example.batchmultidb.datasource.Workload;
+import com.example.batchmultidb.repository.CustomerRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("local")
+@TestPropertySource(properties = {
+        "batch.mode=local",
+        "batch.sharding.enabled=true",
+        "batch.sharding.shards[0].url=jdbc:h2:mem:shard0;DB_CLOSE_DELAY=-1;MODE=Oracle;INIT=RUNSCRIPT FROM 'classpath:schema-shard-h2.sql'",
+        "batch.sharding.shards[1].url=jdbc:h2:mem:shard1;DB_CLOSE_DELAY=-1;MODE=Oracle;INIT=RUNSCRIPT FROM 'classpath:schema-shard-h2.sql'",
+        "batch.sharding.shards[2].url=jdbc:h2:mem:shard2;DB_CLOSE_DELAY=-1;MODE=Oracle;INIT=RUNSCRIPT FROM 'classpath:schema-shard-h2.sql'",
+        "spring.batch.job.enabled=false",
+        "spring.batch.jdbc.initialize-schema=always"
+})
+class ShardedModeIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JobLauncher jobLauncher;
+
+    @Autowired
+    @Qualifier("localImportCustomersJob")
+    private Job localJob;
+
+    @Autowired
+    private ConnectionFactory connectionFactory;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @BeforeEach
+    void initializeBatchSchema() {
+        ResourceDatabasePopulator populator = new ResourceDatabasePopulator(
+                new ClassPathResource("org/springframework/batch/core/schema-h2.sql")
+        );
+        populator.setContinueOnError(true); // ignore if schema already initialized
+        populator.execute(dataSource);
+    }
+
+    @Test
+    void importsIntoTheShardOfEachEmailAndRoutesLookups() throws Exception {
+        ShardRouter shards = connectionFactory.getShardRouter(DataStoreType.SHARDED, Workload.BATCH_WRITE);
+        for (int run = 0; run < 2; run++) {
+            JobExecution execution = jobLauncher.run(localJob, new JobParametersBuilder()
+                    .addString("run.id", UUID.randomUUID().toString())
+                    .toJobParameters());
+            assertThat(execution.getExitStatus()).isEqualTo(ExitStatus.COMPLETED);
+        }
+
+        List<String> emails = new ArrayList<>();
+        int populatedShards = 0;
+        for (int shard = 0; shard < shards.shardCount(); shard++) {
+            List<String> shardEmails = shards.getJdbcTemplate(shard).queryForList("SELECT EMAIL FROM CUSTOMER", String.class);
+            for (String email : shardEmails) {
+                assertThat(shards.shardOf(email)).isEqualTo(shard);
+            }
+            populatedShards += shardEmails.isEmpty() ? 0 : 1;
+            emails.addAll(shardEmails);
+        }
+        assertThat(emails).hasSize(8).doesNotHaveDuplicates();
+        assertThat(populatedShards).isGreaterThan(1);
+        assertThat(customerRepository.count()).isZero();
+
+        mockMvc.perform(get("/customers/by-email").param("email", "jane.smith@example.com"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lastName").value("Smith"));
+
+        MvcResult page = mockMvc.perform(get("/customers").param("limit", "5"))
+                .andExpect(status().isOk())
+                .andReturn();
+        JsonNode customers = objectMapper.readTree(page.getResponse().getContentAsString());
+        assertThat(customers).hasSize(5);
+        for (int i = 1; i < customers.size(); i++) {
+            assertThat(customers.get(i).get("id").asLong()).isGreaterThan(customers.get(i - 1).get("id").asLong());
+        }
+
+        MvcResult stream = mockMvc.perform(get("/customers/stream")).andReturn();
+        String ndjson = mockMvc.perform(asyncDispatch(stream)).andReturn().getResponse().getContentAsString();
+        assertThat(ndjson.lines()).hasSize(8);
+
+        assertThat(meterRegistry.get("hikaricp.connections.acquire").tag("pool", "shard0-batch-write").timer().count())
+                .isPositive();
+    }
+}
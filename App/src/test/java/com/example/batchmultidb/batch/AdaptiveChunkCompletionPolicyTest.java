@@ -0,0 +1,90 @@
+package com.example.batchmultidb.batch;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveChunkCompletionPolicyTest {
+
+    private static final long MILLIS = 1_000_000;
+
+    @Test
+    void initialSizeIsClampedToTheBounds() {
+        assertThat(policy(10).getChunkSize()).isEqualTo(50);
+        assertThat(policy(5000).getChunkSize()).isEqualTo(2000);
+        assertThat(policy(300).getChunkSize()).isEqualTo(300);
+    }
+
+    @Test
+    void sizesTheNextChunkForTheTargetLatency() {
+        AdaptiveChunkCompletionPolicy policy = policy(100);
+
+        policy.record(100, 80 * MILLIS); // 0.8 ms an item: 500 ms is 625 items, at most 2x per chunk
+        assertThat(policy.getChunkSize()).isEqualTo(200);
+
+        policy.record(200, 160 * MILLIS);
+        assertThat(policy.getChunkSize()).isEqualTo(400);
+
+        policy.record(400, 320 * MILLIS);
+        assertThat(policy.getChunkSize()).isEqualTo(625);
+
+        policy.record(625, 500 * MILLIS); // on target: unchanged
+        assertThat(policy.getChunkSize()).isEqualTo(625);
+    }
+
+    @Test
+    void averagesLatencyAcrossChunks() {
+        AdaptiveChunkCompletionPolicy policy = policy(500);
+
+        policy.record(500, 500 * MILLIS); // 1 ms an item
+        policy.record(500, 1500 * MILLIS); // one slow chunk at 3 ms: 0.7 * 1 + 0.3 * 3 = 1.6 ms an item
+
+        assertThat(policy.getChunkSize()).isEqualTo(313);
+    }
+
+    @Test
+    void shrinksAtMostByHalfAndNeverBelowMin() {
+        AdaptiveChunkCompletionPolicy policy = policy(400);
+
+        policy.record(400, 40_000 * MILLIS); // 100 ms an item wants 5 items
+        assertThat(policy.getChunkSize()).isEqualTo(200);
+
+        policy.record(200, 20_000 * MILLIS);
+        assertThat(policy.getChunkSize()).isEqualTo(100);
+
+        policy.record(100, 10_000 * MILLIS);
+        assertThat(policy.getChunkSize()).isEqualTo(50);
+
+        policy.record(50, 5_000 * MILLIS);
+        assertThat(policy.getChunkSize()).isEqualTo(50);
+    }
+
+    @Test
+    void growsAtMostTwofoldAndNeverAboveMax() {
+        AdaptiveChunkCompletionPolicy policy = policy(600);
+
+        policy.record(600, 6 * MILLIS); // 10 us an item wants 50000 items
+        assertThat(policy.getChunkSize()).isEqualTo(1200);
+
+        policy.record(1200, 12 * MILLIS);
+        assertThat(policy.getChunkSize()).isEqualTo(2000);
+
+        policy.record(2000, 20 * MILLIS);
+        assertThat(policy.getChunkSize()).isEqualTo(2000);
+    }
+
+    @Test
+    void ignoresEmptyChunks() {
+        AdaptiveChunkCompletionPolicy policy = policy(100);
+
+        policy.record(0, 10_000 * MILLIS);
+
+        assertThat(policy.getChunkSize()).isEqualTo(100);
+    }
+
+    private static AdaptiveChunkCompletionPolicy policy(int initialSize) {
+        return new AdaptiveChunkCompletionPolicy("step", initialSize, 50, 2000, Duration.ofMillis(500));
+    }
+}
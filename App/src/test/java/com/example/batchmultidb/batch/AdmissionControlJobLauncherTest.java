@@ -0,0 +1,90 @@
+package com.example.batchmultidb.batch;
+
+import com.example.batchmultidb.datasource.DataStoreType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.job.builder.JobBuilder;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.support.JobRepositoryFactoryBean;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdmissionControlJobLauncherTest {
+
+    @Test
+    void queuesBeyondTheStoreLimitAndRejectsWhenTheQueueIsFull() throws Exception {
+        EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("/org/springframework/batch/core/schema-h2.sql")
+                .build();
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(database);
+        JobRepositoryFactoryBean factory = new JobRepositoryFactoryBean();
+        factory.setDataSource(database);
+        factory.setTransactionManager(transactionManager);
+        factory.afterPropertiesSet();
+        JobRepository jobRepository = factory.getObject();
+
+        CountDownLatch release = new CountDownLatch(1);
+        Job job = new JobBuilder("importJob", jobRepository)
+                .start(new StepBuilder("importStep", jobRepository)
+                        .tasklet((contribution, context) -> {
+                            release.await(10, TimeUnit.SECONDS);
+                            return RepeatStatus.FINISHED;
+                        }, transactionManager)
+                        .build())
+                .build();
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AdmissionControlJobLauncher launcher = new AdmissionControlJobLauncher(jobRepository,
+                Map.of(DataStoreType.ORACLE, 1), 1, Map.of("importJob", DataStoreType.ORACLE), registry);
+
+        JobExecution first = launcher.run(job, new JobParametersBuilder().addLong("run", 1L).toJobParameters());
+        awaitStatus(first, BatchStatus.STARTED);
+        JobExecution second = launcher.run(job, new JobParametersBuilder().addLong("run", 2L).toJobParameters());
+
+        assertThat(second.getStatus()).isEqualTo(BatchStatus.STARTING);
+        assertThat(registry.get("batch.launch.queue.depth").tag("store", "ORACLE").gauge().value()).isEqualTo(1);
+        assertThat(registry.get("batch.launch.active").tag("store", "ORACLE").gauge().value()).isEqualTo(1);
+        assertThatThrownBy(() -> launcher.run(job, new JobParametersBuilder().addLong("run", 3L).toJobParameters()))
+                .isInstanceOf(TaskRejectedException.class);
+        Job unknownJob = new JobBuilder("otherJob", jobRepository)
+                .start(new StepBuilder("otherStep", jobRepository)
+                        .tasklet((contribution, context) -> RepeatStatus.FINISHED, transactionManager)
+                        .build())
+                .build();
+        assertThatThrownBy(() -> launcher.run(unknownJob, new JobParametersBuilder().toJobParameters()))
+                .isInstanceOf(IllegalStateException.class);
+
+        release.countDown();
+        awaitStatus(first, BatchStatus.COMPLETED);
+        awaitStatus(second, BatchStatus.COMPLETED);
+        assertThat(registry.get("batch.launch.wait").tag("store", "ORACLE").timer().count()).isEqualTo(2);
+
+        launcher.destroy();
+        database.shutdown();
+    }
+
+    private static void awaitStatus(JobExecution execution, BatchStatus status) throws InterruptedException {
+        for (int i = 0; i < 200 && execution.getStatus() != status; i++) {
+            Thread.sleep(50);
+        }
+        assertThat(execution.getStatus()).isEqualTo(status);
+    }
+}
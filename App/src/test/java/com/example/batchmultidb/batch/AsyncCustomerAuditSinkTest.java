@@ -0,0 +1,100 @@
+package com.example.batchmultidb.batch;
+
+import com.example.batchmultidb.domain.Customer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AsyncCustomerAuditSinkTest {
+
+    @Test
+    void flushWaitsForEveryQueuedRowAndGroupsAcrossAppends() throws Exception {
+        List<Customer> written = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger commits = new AtomicInteger();
+        AsyncCustomerAuditSink sink = new AsyncCustomerAuditSink(customers -> {
+            commits.incrementAndGet();
+            written.addAll(customers);
+            sleep(20); // slow audit store: the queue fills and producers block
+        }, 50, 1000);
+
+        for (int chunk = 0; chunk < 20; chunk++) {
+            sink.append(customers(chunk, 10)); // 200 rows through a 50-row queue
+        }
+        sink.flush();
+
+        assertThat(written).hasSize(200);
+        assertThat(commits.get()).isLessThan(20);
+        sink.destroy();
+    }
+
+    @Test
+    void flushRethrowsWriteFailures() throws Exception {
+        AsyncCustomerAuditSink sink = new AsyncCustomerAuditSink(customers -> {
+            throw new IllegalStateException("audit store down");
+        }, 100, 10);
+
+        sink.append(customers(0, 10));
+
+        assertThatThrownBy(sink::flush).hasRootCauseMessage("audit store down");
+        sink.destroy();
+    }
+
+    @Test
+    void failedBatchesAreRetriedUntilWrittenAndNeverDropped() throws Exception {
+        List<Customer> written = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger failuresLeft = new AtomicInteger(5);
+        AsyncCustomerAuditSink sink = new AsyncCustomerAuditSink(customers -> {
+            if (failuresLeft.getAndDecrement() > 0) {
+                throw new IllegalStateException("audit store down");
+            }
+            written.addAll(customers);
+        }, 100, 10, 10);
+
+        sink.append(customers(0, 10));
+        // the first step's barrier reports the failure instead of clearing it
+        assertThatThrownBy(sink::flush).hasRootCauseMessage("audit store down");
+        // a second step appends while the store is still down: no exception after its commit
+        sink.append(customers(1, 10));
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (true) {
+            try {
+                sink.flush();
+                break;
+            } catch (IllegalStateException e) {
+                assertThat(System.currentTimeMillis()).isLessThan(deadline);
+                sleep(20);
+            }
+        }
+
+        assertThat(written).hasSize(20);
+        assertThat(written).extracting(Customer::getEmail).doesNotHaveDuplicates();
+        sink.destroy();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static List<Customer> customers(int chunk, int size) {
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            customers.add(Customer.builder()
+                    .firstName("First" + i)
+                    .lastName("Last" + chunk)
+                    .email("c" + chunk + "-" + i + "@example.com")
+                    .build());
+        }
+        return customers;
+    }
+}
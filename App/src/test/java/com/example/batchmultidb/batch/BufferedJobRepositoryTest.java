@@ -0,0 +1,109 @@
+package com.example.batchmultidb.batch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.job.builder.JobBuilder;
+import org.springframework.batch.core.launch.support.TaskExecutorJobLauncher;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.support.JobRepositoryFactoryBean;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.batch.item.support.ListItemReader;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BufferedJobRepositoryTest {
+
+    private EmbeddedDatabase database;
+    private DataSourceTransactionManager transactionManager;
+    private JobRepository jdbcJobRepository;
+
+    @BeforeEach
+    void createJobRepository() throws Exception {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("/org/springframework/batch/core/schema-h2.sql")
+                .build();
+        transactionManager = new DataSourceTransactionManager(database);
+        JobRepositoryFactoryBean factory = new JobRepositoryFactoryBean();
+        factory.setDataSource(database);
+        factory.setTransactionManager(transactionManager);
+        factory.afterPropertiesSet();
+        jdbcJobRepository = factory.getObject();
+    }
+
+    @AfterEach
+    void dropDatabase() {
+        database.shutdown();
+    }
+
+    @Test
+    void writesStepProgressOnlyAtStepBoundaries() throws Exception {
+        JobExecution jdbc = run(jdbcJobRepository, items -> { });
+        JobExecution buffered = run(new BufferedJobRepository(jdbcJobRepository, Duration.ZERO), items -> { });
+
+        Map<String, Object> jdbcRow = stepRow(jdbc);
+        Map<String, Object> bufferedRow = stepRow(buffered);
+        // one version per write: start, 10 chunk commits, the empty last chunk and the end
+        assertThat(((Number) jdbcRow.get("VERSION")).intValue()).isEqualTo(13);
+        assertThat(((Number) bufferedRow.get("VERSION")).intValue()).isEqualTo(2);
+        assertThat(bufferedRow).containsEntry("STATUS", "COMPLETED")
+                .containsEntry("COMMIT_COUNT", jdbcRow.get("COMMIT_COUNT"))
+                .containsEntry("READ_COUNT", 100L)
+                .containsEntry("WRITE_COUNT", 100L);
+    }
+
+    @Test
+    void writesTheProgressOfAFailedStep() throws Exception {
+        JobExecution execution = run(new BufferedJobRepository(jdbcJobRepository, Duration.ZERO), items -> {
+            if (items.getItems().contains(55)) {
+                throw new IllegalStateException("write failed");
+            }
+        });
+
+        assertThat(execution.getStatus()).isEqualTo(BatchStatus.FAILED);
+        assertThat(stepRow(execution)).containsEntry("STATUS", "FAILED")
+                .containsEntry("COMMIT_COUNT", 5L)
+                .containsEntry("WRITE_COUNT", 50L)
+                .containsEntry("ROLLBACK_COUNT", 1L);
+    }
+
+    private JobExecution run(JobRepository jobRepository, ItemWriter<Integer> writer) throws Exception {
+        List<Integer> items = IntStream.range(0, 100).boxed().toList();
+        Job job = new JobBuilder("importJob", jobRepository)
+                .start(new StepBuilder("importStep", jobRepository)
+                        .<Integer, Integer>chunk(10, transactionManager)
+                        .reader(new ListItemReader<>(items))
+                        .writer(writer)
+                        .build())
+                .build();
+        TaskExecutorJobLauncher launcher = new TaskExecutorJobLauncher();
+        launcher.setJobRepository(jobRepository);
+        launcher.afterPropertiesSet();
+        return launcher.run(job, new JobParametersBuilder()
+                .addLong("run", System.nanoTime())
+                .toJobParameters());
+    }
+
+    private Map<String, Object> stepRow(JobExecution execution) {
+        return new JdbcTemplate(database).queryForMap(
+                "SELECT VERSION, STATUS, COMMIT_COUNT, READ_COUNT, WRITE_COUNT, ROLLBACK_COUNT"
+                        + " FROM BATCH_STEP_EXECUTION WHERE JOB_EXECUTION_ID = ?", execution.getId());
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.batchmultidb.batch;
+
+import com.example.batchmultidb.domain.Customer;
+import com.github.luben.zstd.ZstdOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompressionCodecTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void detectsCodecFromNameAndContentEncoding() {
+        assertThat(CompressionCodec.fromName("drops/customers.csv.gz")).isEqualTo(CompressionCodec.GZIP);
+        assertThat(CompressionCodec.fromName("customers.CSV.ZST")).isEqualTo(CompressionCodec.ZSTD);
+        assertThat(CompressionCodec.fromName("customers.csv")).isEqualTo(CompressionCodec.NONE);
+        assertThat(CompressionCodec.fromContentEncoding("gzip")).isEqualTo(CompressionCodec.GZIP);
+        assertThat(CompressionCodec.fromContentEncoding(null)).isEqualTo(CompressionCodec.NONE);
+    }
+
+    @Test
+    void decompressesLargeInputInBackground() throws Exception {
+        byte[] plain = csv(50_000).getBytes(StandardCharsets.UTF_8);
+
+        for (CompressionCodec codec : new CompressionCodec[]{CompressionCodec.GZIP, CompressionCodec.ZSTD}) {
+            try (InputStream in = codec.open(new ByteArrayInputStream(compress(codec, plain)))) {
+                assertThat(in.readAllBytes()).isEqualTo(plain);
+            }
+        }
+    }
+
+    @Test
+    void localReaderResumesInsideGzipFile() throws Exception {
+        Path file = tempDir.resolve("customers.csv.gz");
+        Files.write(file, compress(CompressionCodec.GZIP, csv(10).getBytes(StandardCharsets.UTF_8)));
+
+        ExecutionContext context = new ExecutionContext();
+        LocalCsvCustomerItemReader reader = new LocalCsvCustomerItemReader(new FileSystemResource(file));
+        reader.open(context);
+        for (int i = 0; i < 4; i++) {
+            reader.read();
+        }
+        reader.update(context);
+        reader.close();
+
+        LocalCsvCustomerItemReader restarted = new LocalCsvCustomerItemReader(new FileSystemResource(file));
+        restarted.open(context);
+        Customer next = restarted.read();
+        int remaining = 1;
+        while (restarted.read() != null) {
+            remaining++;
+        }
+        restarted.close();
+
+        assertThat(next.getEmail()).isEqualTo("user4@example.com");
+        assertThat(remaining).isEqualTo(6);
+    }
+
+    private static String csv(int rows) {
+        StringBuilder csv = new StringBuilder("firstName,lastName,email\n");
+        for (int i = 0; i < rows; i++) {
+            csv.append("First").append(i).append(",Last").append(i).append(",user").append(i).append("@example.com\n");
+        }
+        return csv.toString();
+    }
+
+    private static byte[] compress(CompressionCodec codec, byte[] plain) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = codec == CompressionCodec.GZIP ? new GZIPOutputStream(bytes) : new ZstdOutputStream(bytes)) {
+            out.write(plain);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.batchmultidb.batch;
+
+import com.example.batchmultidb.domain.Customer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.core.io.FileSystemResource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CsvLinePartitionerTest {
+
+    // the second row's last name spans several lines, each looking like a row of its own
+    private static final String MULTI_LINE = "Smith\nJones,Fake,fake1@example.com\n\"\"quoted\"\"\nBrown,Fake,fake2@example.com";
+
+    private static final String CSV = "firstName,lastName,email\n"
+            + "John,Doe,john.doe@example.com\n"
+            + "Jane,\"" + MULTI_LINE + "\",jane.smith@example.com\n"
+            + "Li,Wei,li.wei@example.com\r\n"
+            + "Ana,\"Souza, \"\"Jr\"\"\",ana.souza@example.com\n";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void boundariesNeverFallInsideAMultiLineQuotedField() throws Exception {
+        Path file = Files.writeString(directory.resolve("customers.csv"), CSV);
+        FileSystemResource resource = new FileSystemResource(file);
+
+        for (int gridSize = 1; gridSize <= CSV.length(); gridSize++) {
+            Map<String, ExecutionContext> partitions = new CsvLinePartitioner(resource).partition(gridSize);
+            List<Customer> customers = new ArrayList<>();
+            for (ExecutionContext partition : partitions.values()) {
+                customers.addAll(S3RangedCustomerItemReaderTest.readAll(new LocalCsvCustomerItemReader(resource,
+                        partition.getLong(CsvLinePartitioner.START_OFFSET_KEY),
+                        partition.getLong(CsvLinePartitioner.END_OFFSET_KEY)), new ExecutionContext()));
+            }
+
+            assertThat(customers).as("grid size %d", gridSize).extracting(Customer::getEmail).containsExactly(
+                    "john.doe@example.com", "jane.smith@example.com", "li.wei@example.com", "ana.souza@example.com");
+            assertThat(customers.get(1).getLastName()).isEqualTo(MULTI_LINE.replace("\"\"", "\""));
+            assertThat(customers.get(3).getLastName()).isEqualTo("Souza, \"Jr\"");
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.batchmultidb.batch;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CsvTokenizerTest {
+
+    private static final String CSV = "firstName,lastName,email\r\n"
+            + "John,Doe,john.doe@example.com\r\n"
+            + "  Jane , Smith ,jane.smith@example.com\n"
+            + "\"O\"\"Brien, Pat\",\"Multi\nLine\",pat@example.com\n"
+            + "\n"
+            + "broken line\n"
+            + "Ann,Lee,\"ann@example.com\"";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void parsesRfc4180RecordsFromMappedFile() throws Exception {
+        Path file = Files.writeString(tempDir.resolve("customers.csv"), CSV);
+        try (CsvTokenizer tokenizer = CsvTokenizer.mapFile(file, 0, Long.MAX_VALUE, 0)) {
+            assertRecords(tokenizer);
+        }
+    }
+
+    @Test
+    void parsesRfc4180RecordsFromStream() throws Exception {
+        byte[] bytes = CSV.getBytes(StandardCharsets.UTF_8);
+        try (CsvTokenizer tokenizer = CsvTokenizer.stream(new ByteArrayInputStream(bytes), 0, 0)) {
+            assertRecords(tokenizer);
+        }
+    }
+
+    @Test
+    void offsetsPointAtRecordStartsAcrossBufferRefills() throws Exception {
+        StringBuilder csv = new StringBuilder();
+        List<Long> recordStarts = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            recordStarts.add((long) csv.length());
+            csv.append("First").append(i).append(",\"Last, ").append(i).append("\",user").append(i).append("@example.com\n");
+        }
+        byte[] bytes = csv.toString().getBytes(StandardCharsets.UTF_8);
+
+        int resumeAt = 12_345;
+        long offset = recordStarts.get(resumeAt);
+        try (CsvTokenizer tokenizer = CsvTokenizer.stream(
+                new ByteArrayInputStream(bytes, (int) offset, bytes.length - (int) offset), offset, resumeAt)) {
+            for (int i = resumeAt; i < recordStarts.size(); i++) {
+                assertThat(tokenizer.getOffset()).isEqualTo(recordStarts.get(i));
+                assertThat(tokenizer.next()).isTrue();
+                assertThat(tokenizer.getField(1)).isEqualTo("Last, " + i);
+                assertThat(tokenizer.getField(2)).isEqualTo("user" + i + "@example.com");
+            }
+            assertThat(tokenizer.next()).isFalse();
+            assertThat(tokenizer.getOffset()).isEqualTo(bytes.length);
+            assertThat(tokenizer.getLineNumber()).isEqualTo(recordStarts.size());
+        }
+    }
+
+    private void assertRecords(CsvTokenizer tokenizer) throws Exception {
+        assertThat(tokenizer.next()).isTrue();
+        assertThat(tokenizer.fieldStartsWithIgnoreCase(0, "firstname")).isTrue();
+
+        assertThat(tokenizer.next()).isTrue();
+        assertThat(fields(tokenizer)).containsExactly("John", "Doe", "john.doe@example.com");
+
+        assertThat(tokenizer.next()).isTrue();
+        assertThat(fields(tokenizer)).containsExactly("Jane", "Smith", "jane.smith@example.com");
+
+        assertThat(tokenizer.next()).isTrue();
+        assertThat(fields(tokenizer)).containsExactly("O\"Brien, Pat", "Multi\nLine", "pat@example.com");
+
+        assertThat(tokenizer.next()).isTrue();
+        assertThat(tokenizer.isBlank()).isTrue();
+
+        assertThat(tokenizer.next()).isTrue();
+        assertThat(tokenizer.getFieldCount()).isEqualTo(1);
+        assertThat(tokenizer.getRecord()).isEqualTo("broken line");
+
+        assertThat(tokenizer.next()).isTrue();
+        assertThat(fields(tokenizer)).containsExactly("Ann", "Lee", "ann@example.com");
+
+        assertThat(tokenizer.next()).isFalse();
+        assertThat(tokenizer.getLineNumber()).isEqualTo(8);
+    }
+
+    private static List<String> fields(CsvTokenizer tokenizer) {
+        List<String> fields = new ArrayList<>();
+        for (int i = 0; i < tokenizer.getFieldCount(); i++) {
+            fields.add(tokenizer.getField(i));
+        }
+        return fields;
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.batchmultidb.batch;
+
+import com.example.batchmultidb.repository.CustomerReadRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.job.builder.JobBuilder;
+import org.springframework.batch.core.launch.support.TaskExecutorJobLauncher;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.support.JobRepositoryFactoryBean;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerExportTaskletTest {
+
+    private EmbeddedDatabase database;
+    private DataSourceTransactionManager transactionManager;
+    private JobRepository jobRepository;
+    private final FakeS3 s3 = new FakeS3();
+    private String expected;
+
+    @BeforeEach
+    void createCustomers() throws Exception {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("/org/springframework/batch/core/schema-h2.sql")
+                .addScript("/schema-h2.sql")
+                .build();
+        transactionManager = new DataSourceTransactionManager(database);
+        JobRepositoryFactoryBean factory = new JobRepositoryFactoryBean();
+        factory.setDataSource(database);
+        factory.setTransactionManager(transactionManager);
+        factory.afterPropertiesSet();
+        jobRepository = factory.getObject();
+
+        StringBuilder csv = new StringBuilder("firstName,lastName,email\n");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+        for (int i = 1; i <= 300; i++) {
+            if (i % 7 == 0) {
+                continue; // gaps in the IDs
+            }
+            String lastName = i == 43 ? "Smith, \"Jr\"" : "Last" + i;
+            jdbcTemplate.update("INSERT INTO CUSTOMER (ID, FIRST_NAME, LAST_NAME, EMAIL) VALUES (?, ?, ?, ?)",
+                    i, "First" + i, lastName, "c" + i + "@example.com");
+            csv.append("First").append(i).append(',').append(CustomerExportTasklet.field(lastName))
+                    .append(",c").append(i).append("@example.com\n");
+        }
+        expected = csv.toString();
+        assertThat(expected).contains("First43,\"Smith, \"\"Jr\"\"\",c43@example.com\n");
+    }
+
+    @AfterEach
+    void dropDatabase() {
+        database.shutdown();
+    }
+
+    @Test
+    void restartResumesAfterTheLastUploadedPart() throws Exception {
+        JobParameters parameters = new JobParametersBuilder().addLong("run", 1L).toJobParameters();
+        s3.failPart = 3;
+
+        JobExecution failed = run(parameters, false);
+        assertThat(failed.getStatus()).isEqualTo(BatchStatus.FAILED);
+        assertThat(s3.completed).isNull();
+
+        JobExecution restarted = run(parameters, false);
+        assertThat(restarted.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+        assertThat(new String(s3.completed, StandardCharsets.UTF_8)).isEqualTo(expected);
+        assertThat(s3.uploadsByPart.get(1)).isEqualTo(1);
+        assertThat(s3.uploadsByPart.get(2)).isEqualTo(1);
+        assertThat(s3.uploadsByPart.get(3)).isEqualTo(2);
+        assertThat(s3.uploadsByPart.size()).isGreaterThan(10);
+        long written = failed.getStepExecutions().iterator().next().getWriteCount()
+                + restarted.getStepExecutions().iterator().next().getWriteCount();
+        assertThat(written).isEqualTo(300 - 300 / 7);
+    }
+
+    @Test
+    void gzippedRangesConcatenateIntoOneGzipStream() throws Exception {
+        JobExecution execution = run(new JobParametersBuilder().addLong("run", 2L).toJobParameters(), true);
+
+        assertThat(execution.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+        assertThat(s3.contentEncoding).isEqualTo("gzip");
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(s3.completed))) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(expected);
+        }
+    }
+
+    private JobExecution run(JobParameters parameters, boolean gzip) throws Exception {
+        // 16 IDs per range, parts of at least 400 bytes, 3 ranges and 3 parts at a time
+        CustomerExportTasklet tasklet = new CustomerExportTasklet(new CustomerReadRepository(database), s3,
+                "bucket", "exports/customers.csv", gzip, 400, 3, 16);
+        TaskExecutorJobLauncher launcher = new TaskExecutorJobLauncher();
+        launcher.setJobRepository(jobRepository);
+        launcher.afterPropertiesSet();
+        return launcher.run(new JobBuilder("exportCustomersJob", jobRepository)
+                .start(new StepBuilder("exportCustomersStep", jobRepository)
+                        .tasklet(tasklet, transactionManager)
+                        .listener(tasklet)
+                        .build())
+                .build(), parameters);
+    }
+
+    private static class FakeS3 implements S3Client {
+
+        private final Map<Integer, byte[]> parts = new ConcurrentHashMap<>();
+        private final Map<Integer, Integer> uploadsByPart = new ConcurrentHashMap<>();
+        private volatile int failPart;
+        private String contentEncoding;
+        private byte[] completed;
+
+        @Override
+        public CreateMultipartUploadResponse createMultipartUpload(CreateMultipartUploadRequest request) {
+            contentEncoding = request.contentEncoding();
+            return CreateMultipartUploadResponse.builder().uploadId("upload-1").build();
+        }
+
+        @Override
+        public UploadPartResponse uploadPart(UploadPartRequest request, RequestBody body) {
+            int partNumber = request.partNumber();
+            uploadsByPart.merge(partNumber, 1, Integer::sum);
+            if (partNumber == failPart) {
+                failPart = 0;
+                throw new IllegalStateException("connection reset");
+            }
+            try {
+                parts.put(partNumber, body.contentStreamProvider().newStream().readAllBytes());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return UploadPartResponse.builder().eTag("\"etag-" + partNumber + "\"").build();
+        }
+
+        @Override
+        public CompleteMultipartUploadResponse completeMultipartUpload(CompleteMultipartUploadRequest request) {
+            ByteArrayOutputStream object = new ByteArrayOutputStream();
+            int partNumber = 1;
+            for (CompletedPart part : request.multipartUpload().parts()) {
+                assertThat(part.partNumber()).isEqualTo(partNumber++);
+                assertThat(part.eTag()).isEqualTo("\"etag-" + part.partNumber() + "\"");
+                object.writeBytes(parts.get(part.partNumber()));
+            }
+            completed = object.toByteArray();
+            return CompleteMultipartUploadResponse.builder().build();
+        }
+
+        @Override
+        public String serviceName() {
+            return "s3";
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.batchmultidb.batch;
+
+import com.example.batchmultidb.domain.Customer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DuplicateEmailFilterProcessorTest {
+
+    private EmbeddedDatabase database;
+    private DuplicateEmailFilterProcessor processor;
+
+    @BeforeEach
+    void createCustomers() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("/schema-h2.sql")
+                .build();
+        new JdbcTemplate(database).update("INSERT INTO CUSTOMER (ID, FIRST_NAME, LAST_NAME, EMAIL) VALUES (?, ?, ?, ?)",
+                1, "John", "Doe", "existing@example.com");
+        processor = new DuplicateEmailFilterProcessor(item -> item, database);
+    }
+
+    @AfterEach
+    void dropDatabase() {
+        database.shutdown();
+    }
+
+    @Test
+    void concurrentJobsFilterAgainstTheirOwnEmails() throws Exception {
+        StepExecution first = new StepExecution("importStep", new JobExecution(1L), 1L);
+        StepExecution second = new StepExecution("importStep", new JobExecution(2L), 2L);
+        processor.beforeStep(first);
+        processor.beforeStep(second);
+
+        assertThat(process(first, "existing@example.com")).isNull();
+        assertThat(process(first, "new@example.com")).isNotNull();
+        assertThat(process(first, "new@example.com")).isNull();
+        // new@example.com is in flight in the first job only
+        assertThat(process(second, "new@example.com")).isNotNull();
+        assertThat(process(second, "existing@example.com")).isNull();
+
+        processor.afterStep(first);
+        processor.afterStep(second);
+    }
+
+    @Test
+    void partitionsShareTheSetUntilTheLastOneEnds() throws Exception {
+        JobExecution jobExecution = new JobExecution(3L);
+        StepExecution partition0 = new StepExecution("workerStep:partition0", jobExecution, 3L);
+        StepExecution partition1 = new StepExecution("workerStep:partition1", jobExecution, 4L);
+        processor.beforeStep(partition0);
+        processor.beforeStep(partition1);
+
+        assertThat(process(partition0, "new@example.com")).isNotNull();
+        assertThat(process(partition1, "new@example.com")).isNull();
+
+        processor.afterStep(partition0);
+        assertThat(processor.emails(3L)).isNotNull();
+        processor.afterStep(partition1);
+        assertThat(processor.emails(3L)).isNull();
+    }
+
+    private Customer process(StepExecution stepExecution, String email) throws Exception {
+        StepSynchronizationManager.register(stepExecution);
+        try {
+            return processor.process(Customer.builder().firstName("First").lastName("Last").email(email).build());
+        } finally {
+            StepSynchronizationManager.close();
+        }
+    }
+}
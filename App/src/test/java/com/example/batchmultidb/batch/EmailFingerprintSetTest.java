@@ -0,0 +1,23 @@
+package com.example.batchmultidb.batch;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EmailFingerprintSetTest {
+
+    @Test
+    void detectsRepeatedEmailsAcrossGrowth() {
+        EmailFingerprintSet set = new EmailFingerprintSet(0);
+
+        for (int i = 0; i < 100_000; i++) {
+            assertThat(set.add("user" + i + "@example.com")).isTrue();
+        }
+
+        assertThat(set.size()).isEqualTo(100_000);
+        assertThat(set.add("user42@example.com")).isFalse();
+        assertThat(set.contains("user99999@example.com")).isTrue();
+        assertThat(set.contains("USER42@example.com")).isFalse();
+        assertThat(set.memoryBytes()).isLessThan(100_000L * 24);
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.batchmultidb.batch;
+
+import com.example.batchmultidb.domain.Customer;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.ExecutionContext;
+import software.amazon.awssdk.services.s3.S3Client;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class S3CustomerItemReaderTest {
+
+    private static final String CSV = "firstName,lastName,email\n"
+            + "John,Doe,john.doe@example.com\n"
+            + "\"Smith, Jr\",Smith,jane.smith@example.com\r\n"
+            + "Li,Wei,li.wei@example.com\n"
+            + "Ana,Souza,ana.souza@example.com\n";
+
+    private final List<String> ranges = new ArrayList<>();
+    private final S3Client s3Client =
+            S3RangedCustomerItemReaderTest.fakeS3(CSV.getBytes(StandardCharsets.UTF_8), ranges);
+
+    @Test
+    void restartFetchesFromTheCommittedOffsetAndSkipsExactlyTheCommittedLines() throws Exception {
+        ExecutionContext executionContext = new ExecutionContext();
+        S3CustomerItemReader first = new S3CustomerItemReader(s3Client, "bucket", "customers.csv");
+        first.open(executionContext);
+        assertThat(first.read().getEmail()).isEqualTo("john.doe@example.com");
+        assertThat(first.read().getFirstName()).isEqualTo("Smith, Jr");
+        first.update(executionContext); // the chunk of two rows commits, then the step fails
+        first.read();
+        first.close();
+
+        int committed = CSV.indexOf("Li,");
+        assertThat(executionContext.getLong(S3CustomerItemReader.OFFSET_KEY)).isEqualTo(committed);
+        assertThat(executionContext.getLong(S3CustomerItemReader.LINE_KEY)).isEqualTo(3);
+
+        ranges.clear();
+        List<Customer> rest = S3RangedCustomerItemReaderTest.readAll(
+                new S3CustomerItemReader(s3Client, "bucket", "customers.csv"), executionContext);
+
+        assertThat(ranges).containsExactly("bytes=" + committed + "-");
+        assertThat(rest).extracting(Customer::getEmail).containsExactly("li.wei@example.com", "ana.souza@example.com");
+    }
+
+    @Test
+    void restartAfterTheLastLineReadsNothing() throws Exception {
+        ExecutionContext executionContext = new ExecutionContext();
+        S3CustomerItemReader first = new S3CustomerItemReader(s3Client, "bucket", "customers.csv");
+        first.open(executionContext);
+        int rows = 0;
+        while (first.read() != null) {
+            rows++;
+        }
+        assertThat(rows).isEqualTo(4);
+        first.update(executionContext); // the last chunk commits, then the step fails before it completes
+        first.close();
+
+        assertThat(executionContext.getLong(S3CustomerItemReader.OFFSET_KEY)).isEqualTo(CSV.length());
+        assertThat(S3RangedCustomerItemReaderTest.readAll(
+                new S3CustomerItemReader(s3Client, "bucket", "customers.csv"), executionContext)).isEmpty();
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.batchmultidb.batch;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.ExecutionContext;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class S3PrefixPartitionerTest {
+
+    private static final String LONG_KEY = "drops/2024-06-01/" + "x".repeat(80) + "/part-00017.csv.gz";
+
+    @Test
+    void createsOneStablyNamedPartitionPerObjectAcrossPages() {
+        S3Client s3Client = mock(S3Client.class);
+        when(s3Client.listObjectsV2Paginator(any(ListObjectsV2Request.class))).thenCallRealMethod();
+        when(s3Client.listObjectsV2(any(ListObjectsV2Request.class))).thenAnswer(invocation -> {
+            ListObjectsV2Request request = invocation.getArgument(0);
+            if (request.continuationToken() == null) {
+                return ListObjectsV2Response.builder()
+                        .contents(object("drops/2024-06-01/", 0), object("drops/2024-06-01/part-00001.csv", 120))
+                        .isTruncated(true)
+                        .nextContinuationToken("page2")
+                        .build();
+            }
+            return ListObjectsV2Response.builder()
+                    .contents(object(LONG_KEY, 300))
+                    .isTruncated(false)
+                    .build();
+        });
+
+        Map<String, ExecutionContext> partitions =
+                new S3PrefixPartitioner(s3Client, "bucket", "drops/2024-06-01/").partition(1);
+
+        assertThat(partitions).hasSize(2);
+        assertThat(partitions.get("drops/2024-06-01/part-00001.csv").getString(S3PrefixPartitioner.OBJECT_KEY))
+                .isEqualTo("drops/2024-06-01/part-00001.csv");
+        String longName = S3PrefixPartitioner.partitionName(LONG_KEY);
+        assertThat(longName).hasSizeLessThanOrEqualTo(60).contains("part-00017.csv.gz#");
+        assertThat(partitions.get(longName).getString(S3PrefixPartitioner.OBJECT_KEY)).isEqualTo(LONG_KEY);
+    }
+
+    private static S3Object object(String key, long size) {
+        return S3Object.builder().key(key).size(size).build();
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.batchmultidb.batch;
+
+import com.example.batchmultidb.domain.Customer;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamReader;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class S3RangedCustomerItemReaderTest {
+
+    // CRLF and LF endings, a two-byte character and no newline after the last row
+    private static final String CSV = "firstName,lastName,email\r\n"
+            + "John,Doe,john.doe@example.com\r\n"
+            + "Zo\u00e9,Martin,zoe.martin@example.com\n"
+            + "Jane,Smith,jane.smith@example.com\n"
+            + "Li,Wei,li.wei@example.com\n"
+            + "Ana,Souza,ana.souza@example.com";
+
+    private static final List<String> EMAILS = List.of("john.doe@example.com", "zoe.martin@example.com",
+            "jane.smith@example.com", "li.wei@example.com", "ana.souza@example.com");
+
+    private final byte[] object = CSV.getBytes(StandardCharsets.UTF_8);
+    private final List<String> ranges = new ArrayList<>();
+    private final S3Client s3Client = fakeS3(object, ranges);
+
+    @Test
+    void stitchesRowsThatStraddleRangeBoundaries() throws Exception {
+        // every part size from one byte up cuts the rows, and the two-byte character, at different places
+        for (int partSize = 1; partSize <= object.length + 1; partSize++) {
+            List<Customer> customers = readAll(new S3RangedCustomerItemReader(s3Client, "bucket", "customers.csv",
+                    partSize, 3), new ExecutionContext());
+
+            assertThat(customers).as("part size %d", partSize)
+                    .extracting(Customer::getEmail).containsExactlyElementsOf(EMAILS);
+            assertThat(customers.get(1).getFirstName()).isEqualTo("Zo\u00e9");
+        }
+    }
+
+    @Test
+    void byteRangePartitionsReadEveryRowExactlyOnce() throws Exception {
+        for (int gridSize : new int[]{1, 2, 3, 5, 8, 13, 21, 50, object.length}) {
+            Map<String, ExecutionContext> partitions =
+                    new S3RangePartitioner(s3Client, "bucket", "customers.csv").partition(gridSize);
+            List<String> emails = new ArrayList<>();
+            for (ExecutionContext partition : partitions.values()) {
+                long start = partition.getLong(CsvLinePartitioner.START_OFFSET_KEY);
+                long end = partition.getLong(CsvLinePartitioner.END_OFFSET_KEY);
+                readAll(new S3RangedCustomerItemReader(s3Client, "bucket", "customers.csv", 5, 2, start, end),
+                        new ExecutionContext()).forEach(customer -> emails.add(customer.getEmail()));
+            }
+
+            assertThat(emails).as("grid size %d", gridSize).containsExactlyInAnyOrderElementsOf(EMAILS);
+        }
+    }
+
+    @Test
+    void restartSkipsExactlyTheCommittedLines() throws Exception {
+        ExecutionContext executionContext = new ExecutionContext();
+        S3RangedCustomerItemReader first = new S3RangedCustomerItemReader(s3Client, "bucket", "customers.csv", 7, 3);
+        first.open(executionContext);
+        first.read();
+        first.read();
+        first.update(executionContext); // the chunk of two rows commits, then the step fails
+        first.close();
+
+        long committed = CSV.substring(0, CSV.indexOf("Jane")).getBytes(StandardCharsets.UTF_8).length;
+        assertThat(executionContext.getLong(S3RangedCustomerItemReader.OFFSET_KEY)).isEqualTo(committed);
+        assertThat(executionContext.getLong(S3RangedCustomerItemReader.LINE_KEY)).isEqualTo(3);
+
+        ranges.clear();
+        List<Customer> rest = readAll(new S3RangedCustomerItemReader(s3Client, "bucket", "customers.csv", 7, 3),
+                executionContext);
+
+        assertThat(rest).extracting(Customer::getEmail).containsExactlyElementsOf(EMAILS.subList(2, 5));
+        assertThat(ranges).allSatisfy(range ->
+                assertThat(Long.parseLong(range.substring(6, range.indexOf('-')))).isGreaterThanOrEqualTo(committed));
+    }
+
+    @Test
+    void parsesQuotedFieldsLikeTheStreamingReader() throws Exception {
+        // quoted commas, escaped quotes and a field spanning lines that look like rows of their own
+        byte[] quoted = ("firstName,lastName,email\n"
+                + "\"Doe, John\",Doe,john.doe@example.com\n"
+                + "Jane,\"Smith\nFake,Row,fake@example.com\nJones\",jane.smith@example.com\r\n"
+                + "Li,\"Wei \"\"Lee\"\"\",li.wei@example.com\n"
+                + "Ana,Souza,ana.souza@example.com\n").getBytes(StandardCharsets.UTF_8);
+        S3Client quotedS3 = fakeS3(quoted, new ArrayList<>());
+        List<String> expected = readAll(new S3CustomerItemReader(quotedS3, "bucket", "customers.csv"),
+                new ExecutionContext()).stream().map(S3RangedCustomerItemReaderTest::describe).toList();
+        assertThat(expected).containsExactly("Doe, John|Doe|john.doe@example.com",
+                "Jane|Smith\nFake,Row,fake@example.com\nJones|jane.smith@example.com",
+                "Li|Wei \"Lee\"|li.wei@example.com", "Ana|Souza|ana.souza@example.com");
+
+        for (int partSize = 1; partSize <= quoted.length + 1; partSize += 3) {
+            assertThat(readAll(new S3RangedCustomerItemReader(quotedS3, "bucket", "customers.csv", partSize, 3),
+                    new ExecutionContext())).as("part size %d", partSize)
+                    .extracting(S3RangedCustomerItemReaderTest::describe).containsExactlyElementsOf(expected);
+        }
+        for (int gridSize : new int[]{2, 3, 4, 5, 7, 9, 13, 20, quoted.length}) {
+            List<String> customers = new ArrayList<>();
+            for (ExecutionContext partition : new S3RangePartitioner(quotedS3, "bucket", "customers.csv", 16, 2)
+                    .partition(gridSize).values()) {
+                readAll(new S3RangedCustomerItemReader(quotedS3, "bucket", "customers.csv", 16, 2,
+                        partition.getLong(CsvLinePartitioner.START_OFFSET_KEY),
+                        partition.getLong(CsvLinePartitioner.END_OFFSET_KEY)), new ExecutionContext())
+                        .forEach(customer -> customers.add(describe(customer)));
+            }
+            assertThat(customers).as("grid size %d", gridSize).containsExactlyElementsOf(expected);
+        }
+    }
+
+    private static String describe(Customer customer) {
+        return customer.getFirstName() + "|" + customer.getLastName() + "|" + customer.getEmail();
+    }
+
+    static List<Customer> readAll(ItemStreamReader<Customer> reader,
+                                  ExecutionContext executionContext) throws Exception {
+        List<Customer> customers = new ArrayList<>();
+        reader.open(executionContext);
+        try {
+            for (Customer customer = reader.read(); customer != null; customer = reader.read()) {
+                customers.add(customer);
+            }
+        } finally {
+            reader.close();
+        }
+        return customers;
+    }
+
+    /**
+     * An S3 client serving {@code object} for HEAD and (ranged) GET requests, recording each range asked for.
+     */
+    @SuppressWarnings("unchecked")
+    static S3Client fakeS3(byte[] object, List<String> ranges) {
+        S3Client s3Client = mock(S3Client.class);
+        when(s3Client.headObject(any(HeadObjectRequest.class))).thenReturn(
+                HeadObjectResponse.builder().contentLength((long) object.length).build());
+        when(s3Client.getObject(any(GetObjectRequest.class), any(ResponseTransformer.class))).thenAnswer(invocation -> {
+            ResponseTransformer<GetObjectResponse, ?> transformer = invocation.getArgument(1);
+            return transformer.transform(GetObjectResponse.builder().build(),
+                    AbortableInputStream.create(slice(object, invocation.getArgument(0), ranges)));
+        });
+        when(s3Client.getObject(any(GetObjectRequest.class))).thenAnswer(invocation -> new ResponseInputStream<>(
+                GetObjectResponse.builder().build(),
+                AbortableInputStream.create(slice(object, invocation.getArgument(0), ranges))));
+        return s3Client;
+    }
+
+    private static ByteArrayInputStream slice(byte[] object, GetObjectRequest request, List<String> ranges) {
+        synchronized (ranges) {
+            ranges.add(request.range());
+        }
+        if (request.range() == null) {
+            return new ByteArrayInputStream(object);
+        }
+        String[] bounds = request.range().substring("bytes=".length()).split("-", -1);
+        int first = Integer.parseInt(bounds[0]);
+        int last = bounds[1].isEmpty() ? object.length - 1 : Math.min(Integer.parseInt(bounds[1]), object.length - 1);
+        return new ByteArrayInputStream(object, first, last - first + 1);
+    }
+}
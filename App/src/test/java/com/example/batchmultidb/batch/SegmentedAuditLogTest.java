@@ -0,0 +1,117 @@
+package com.example.batchmultidb.batch;
+
+import com.example.batchmultidb.domain.Customer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SegmentedAuditLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void rollsOverSegmentsAndScansEveryEntryInOrderAfterReopening() throws IOException {
+        try (SegmentedAuditLog log = new SegmentedAuditLog(directory, 4096, Duration.ofDays(30))) {
+            for (int chunk = 0; chunk < 20; chunk++) {
+                log.append(customers(chunk * 10, 10));
+            }
+        }
+        assertThat(segments()).hasSizeGreaterThan(1);
+
+        try (SegmentedAuditLog log = new SegmentedAuditLog(directory, 4096, Duration.ofDays(30))) {
+            assertThat(log.nextSequence()).isEqualTo(200);
+            log.append(customers(200, 10));
+
+            List<SegmentedAuditLog.Entry> entries = scan(log, 0);
+            assertThat(entries).hasSize(210);
+            for (int i = 0; i < entries.size(); i++) {
+                assertThat(entries.get(i).sequence()).isEqualTo(i);
+                assertThat(entries.get(i).email()).isEqualTo("customer" + i + "@example.com");
+            }
+            assertThat(scan(log, 205)).extracting(SegmentedAuditLog.Entry::sequence)
+                    .containsExactly(205L, 206L, 207L, 208L, 209L);
+        }
+    }
+
+    @Test
+    void cutsOffATornLastWrite() throws IOException {
+        try (SegmentedAuditLog log = new SegmentedAuditLog(directory, 4096, Duration.ofDays(30))) {
+            log.append(customers(0, 3));
+        }
+        Path segment = segments().get(0);
+        long end = endOfEntries(segment);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            // header of a 40 byte entry whose checksum will not match, then part of its payload
+            channel.write(ByteBuffer.allocate(20).putInt(40).putInt(12345).putLong(7L).flip(), end);
+        }
+
+        try (SegmentedAuditLog log = new SegmentedAuditLog(directory, 4096, Duration.ofDays(30))) {
+            assertThat(log.nextSequence()).isEqualTo(3);
+            log.append(customers(3, 1));
+            assertThat(scan(log, 0)).extracting(SegmentedAuditLog.Entry::email)
+                    .containsExactly("customer0@example.com", "customer1@example.com",
+                            "customer2@example.com", "customer3@example.com");
+        }
+    }
+
+    @Test
+    void deletesClosedSegmentsPastRetentionAndReplaysTheRest() throws IOException {
+        try (SegmentedAuditLog log = new SegmentedAuditLog(directory, 4096, Duration.ofHours(1))) {
+            log.append(customers(0, 100));
+            for (Path segment : segments()) {
+                Files.setLastModifiedTime(segment, FileTime.from(Instant.now().minus(Duration.ofHours(2))));
+            }
+            log.append(customers(100, 100)); // rolls over, which applies retention
+
+            List<Path> segments = segments();
+            assertThat(segments).isNotEmpty();
+            List<Customer> replayed = new ArrayList<>();
+            long rows = log.replay(replayed::addAll, 7);
+            assertThat(rows).isEqualTo(replayed.size()).isLessThan(200).isGreaterThan(0);
+            assertThat(replayed.get(replayed.size() - 1).getEmail()).isEqualTo("customer199@example.com");
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    private static long endOfEntries(Path segment) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(segment));
+        while (bytes.getInt(bytes.position()) != 0) {
+            bytes.position(bytes.position() + 8 + bytes.getInt(bytes.position()));
+        }
+        return bytes.position();
+    }
+
+    private static List<SegmentedAuditLog.Entry> scan(SegmentedAuditLog log, long fromSequence) throws IOException {
+        List<SegmentedAuditLog.Entry> entries = new ArrayList<>();
+        log.scan(fromSequence, entries::add);
+        return entries;
+    }
+
+    private static List<Customer> customers(int first, int count) {
+        List<Customer> customers = new ArrayList<>();
+        for (int i = first; i < first + count; i++) {
+            customers.add(new Customer(null, "First" + i, "Last" + i, "customer" + i + "@example.com"));
+        }
+        return customers;
+    }
+}
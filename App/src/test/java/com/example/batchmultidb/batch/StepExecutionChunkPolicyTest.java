@@ -0,0 +1,70 @@
+package com.example.batchmultidb.batch;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.repeat.context.RepeatContextSupport;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StepExecutionChunkPolicyTest {
+
+    @Test
+    void everyStepExecutionSizesItsOwnChunks() {
+        List<AdaptiveChunkCompletionPolicy> created = new ArrayList<>();
+        StepExecutionChunkPolicy policy = new StepExecutionChunkPolicy("partitionedStep", 100, () -> {
+            AdaptiveChunkCompletionPolicy adaptive = new AdaptiveChunkCompletionPolicy("partitionedStep",
+                    100, 50, 2000, Duration.ofMillis(500));
+            created.add(adaptive);
+            return adaptive;
+        });
+        JobExecution jobExecution = new JobExecution(1L);
+        StepExecution fast = new StepExecution("partitionedStep:partition0", jobExecution, 1L);
+        StepExecution slow = new StepExecution("partitionedStep:partition1", jobExecution, 2L);
+        policy.beforeStep(fast);
+        policy.beforeStep(slow);
+        assertThat(created).hasSize(2);
+
+        created.get(0).record(100, 10_000_000L); // 0.1 ms an item
+        created.get(1).record(100, 2_000_000_000L); // 20 ms an item
+
+        assertThat(chunkSize(policy, fast)).isEqualTo(200);
+        assertThat(chunkSize(policy, slow)).isEqualTo(50);
+        assertThat(policy.meanChunkSize()).isEqualTo(125.0);
+
+        policy.afterStep(fast);
+        policy.afterStep(slow);
+        assertThat(policy.meanChunkSize()).isEqualTo(100.0);
+        assertThatThrownBy(() -> runIn(fast, () -> policy.afterWrite(new Chunk<>())))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    // items a chunk takes before the policy completes it, as seen from the step execution's thread
+    private static int chunkSize(StepExecutionChunkPolicy policy, StepExecution stepExecution) {
+        int[] size = new int[1];
+        runIn(stepExecution, () -> {
+            RepeatContextSupport context = (RepeatContextSupport) policy.start(null);
+            while (!policy.isComplete(context)) {
+                policy.update(context);
+                size[0]++;
+            }
+        });
+        return size[0];
+    }
+
+    private static void runIn(StepExecution stepExecution, Runnable action) {
+        StepSynchronizationManager.register(stepExecution);
+        try {
+            action.run();
+        } finally {
+            StepSynchronizationManager.close();
+        }
+    }
+}
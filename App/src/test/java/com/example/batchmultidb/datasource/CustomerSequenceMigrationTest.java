@@ -0,0 +1,85 @@
+package com.example.batchmultidb.datasource;
+
+import com.example.batchmultidb.domain.Customer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerSequenceMigrationTest {
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void createIdentityTable() {
+        // CUSTOMER as it was before CUSTOMER_SEQ, with rows already holding IDs 1..120
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("CREATE TABLE CUSTOMER (ID IDENTITY PRIMARY KEY, FIRST_NAME VARCHAR(100) NOT NULL,"
+                + " LAST_NAME VARCHAR(100) NOT NULL, EMAIL VARCHAR(200) NOT NULL UNIQUE)");
+        for (int i = 1; i <= 120; i++) {
+            jdbcTemplate.update("INSERT INTO CUSTOMER (FIRST_NAME, LAST_NAME, EMAIL) VALUES (?, ?, ?)",
+                    "First" + i, "Last" + i, "c" + i + "@example.com");
+        }
+    }
+
+    @AfterEach
+    void dropDatabase() {
+        database.shutdown();
+    }
+
+    @Test
+    void createsAMissingSequenceAboveTheExistingIds() {
+        assertThat(migration().migrate()).isEqualTo(121);
+
+        assertFirstBlockIsFree();
+    }
+
+    @Test
+    void restartsASequenceThatIsBehindTheExistingIds() {
+        // what Hibernate's schema update or schema-h2.sql leaves behind on an upgraded database
+        jdbcTemplate.execute("CREATE SEQUENCE CUSTOMER_SEQ START WITH 1 INCREMENT BY 50");
+
+        assertThat(migration().migrate()).isEqualTo(121);
+
+        assertFirstBlockIsFree();
+    }
+
+    @Test
+    void leavesASequenceThatIsAheadAlone() {
+        jdbcTemplate.execute("CREATE SEQUENCE CUSTOMER_SEQ START WITH 1001 INCREMENT BY 50");
+
+        assertThat(migration().migrate()).isEqualTo(-1);
+        assertThat(allocator().nextId()).isEqualTo(1051);
+    }
+
+    private void assertFirstBlockIsFree() {
+        SequenceIdAllocator allocator = allocator();
+        long[] ids = allocator.nextIds(Customer.ID_ALLOCATION_SIZE + 1);
+        assertThat(ids[0]).isEqualTo(121);
+        for (long id : ids) {
+            jdbcTemplate.update("INSERT INTO CUSTOMER (ID, FIRST_NAME, LAST_NAME, EMAIL) VALUES (?, ?, ?, ?)",
+                    id, "New", "Customer", "new" + id + "@example.com");
+        }
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM CUSTOMER", Integer.class))
+                .isEqualTo(120 + ids.length);
+    }
+
+    private CustomerSequenceMigration migration() {
+        return new CustomerSequenceMigration(jdbcTemplate, "CUSTOMER", Customer.ID_SEQUENCE,
+                Customer.ID_ALLOCATION_SIZE);
+    }
+
+    private SequenceIdAllocator allocator() {
+        return new SequenceIdAllocator(jdbcTemplate, Customer.ID_SEQUENCE, Customer.ID_ALLOCATION_SIZE);
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.batchmultidb.service;
+
+import com.example.batchmultidb.batch.SegmentedAuditLog;
+import com.example.batchmultidb.datasource.DataStoreType;
+import com.example.batchmultidb.datasource.DefaultConnectionFactory;
+import com.example.batchmultidb.datasource.Workload;
+import com.example.batchmultidb.domain.Customer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AuditLogControllerTest {
+
+    @TempDir
+    Path directory;
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private SegmentedAuditLog auditLog;
+    private AuditLogController controller;
+
+    @BeforeEach
+    void createAuditTable() throws Exception {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("/schema-h2.sql")
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        for (int i = 0; i < 3; i++) {
+            jdbcTemplate.update("INSERT INTO CUSTOMER_AUDIT (FIRST_NAME, LAST_NAME, EMAIL) VALUES (?, ?, ?)",
+                    "Old", "Row", "old" + i + "@example.com");
+        }
+        auditLog = new SegmentedAuditLog(directory, 1 << 20, Duration.ofDays(30));
+        controller = new AuditLogController(auditLog,
+                new DefaultConnectionFactory().register(DataStoreType.H2, Workload.AUDIT, database));
+    }
+
+    @AfterEach
+    void close() throws Exception {
+        auditLog.close();
+        database.shutdown();
+    }
+
+    @Test
+    void replacesTheTableWithTheLog() throws Exception {
+        auditLog.append(customers(1500, -1));
+
+        assertThat(controller.rebuild(false).getBody()).containsEntry("deleted", 3L).containsEntry("rows", 1500L);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM CUSTOMER_AUDIT", Integer.class)).isEqualTo(1500);
+    }
+
+    @Test
+    void aFailedReplayLeavesThePreviousRows() throws Exception {
+        // the second batch of 1000 holds an email too long for the column
+        auditLog.append(customers(1500, 1200));
+
+        assertThatThrownBy(() -> controller.rebuild(false)).isNotNull();
+        assertThat(jdbcTemplate.queryForList("SELECT EMAIL FROM CUSTOMER_AUDIT ORDER BY ID", String.class))
+                .containsExactly("old0@example.com", "old1@example.com", "old2@example.com");
+    }
+
+    @Test
+    void refusesToRebuildOnceASegmentHasExpiredUnlessForced() throws Exception {
+        auditLog.close();
+        Path expiring = directory.resolve("expiring");
+        auditLog = new SegmentedAuditLog(expiring, 4096, Duration.ofDays(30));
+        auditLog.append(customers(300, -1));
+        auditLog.close();
+        Files.setLastModifiedTime(expiring.resolve(String.format("audit-%020d.log", 0)),
+                FileTime.from(Instant.now().minus(Duration.ofDays(31))));
+        auditLog = new SegmentedAuditLog(expiring, 4096, Duration.ofDays(30));
+        controller = new AuditLogController(auditLog,
+                new DefaultConnectionFactory().register(DataStoreType.H2, Workload.AUDIT, database));
+        long oldestSequence = auditLog.oldestSequence();
+        assertThat(oldestSequence).isPositive();
+
+        ResponseEntity<Map<String, Object>> refused = controller.rebuild(false);
+        assertThat(refused.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        assertThat(refused.getBody()).containsEntry("oldestSequence", oldestSequence);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM CUSTOMER_AUDIT", Integer.class)).isEqualTo(3);
+
+        assertThat(controller.rebuild(true).getBody()).containsEntry("deleted", 3L)
+                .containsEntry("rows", 300 - oldestSequence);
+    }
+
+    private static List<Customer> customers(int count, int tooLong) {
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String email = (i == tooLong ? "x".repeat(300) : "c" + i) + "@example.com";
+            customers.add(Customer.builder().firstName("First" + i).lastName("Last" + i).email(email).build());
+        }
+        return customers;
+    }
+}
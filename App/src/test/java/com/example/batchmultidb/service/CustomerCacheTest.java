@@ -0,0 +1,67 @@
+package com.example.batchmultidb.service;
+
+import com.example.batchmultidb.domain.Customer;
+import com.example.batchmultidb.repository.CustomerReadRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CustomerCacheTest {
+
+    private final CustomerReadRepository repository = mock(CustomerReadRepository.class);
+    private final CustomerCache cache = new CustomerCache(repository, 100, Duration.ofMinutes(10));
+
+    @Test
+    void servesRepeatedLookupsFromCacheUntilInvalidated() {
+        Customer jane = new Customer(2L, "Jane", "Smith", "jane.smith@example.com");
+        when(repository.findById(2L)).thenReturn(Optional.of(jane));
+        when(repository.findByEmail("jane.smith@example.com")).thenReturn(Optional.of(jane));
+
+        assertThat(cache.findById(2L)).contains(jane);
+        assertThat(cache.findById(2L)).contains(jane);
+        assertThat(cache.findByEmail("jane.smith@example.com")).contains(jane);
+        verify(repository, times(1)).findById(2L);
+
+        cache.invalidate(List.of("jane.smith@example.com"));
+        cache.findById(2L);
+        cache.findByEmail("jane.smith@example.com");
+
+        verify(repository, times(2)).findById(2L);
+        verify(repository, times(2)).findByEmail("jane.smith@example.com");
+    }
+
+    @Test
+    void invalidatesOnlyTheGivenEmails() {
+        Customer jane = new Customer(2L, "Jane", "Smith", "jane.smith@example.com");
+        Customer john = new Customer(3L, "John", "Doe", "john.doe@example.com");
+        when(repository.findById(2L)).thenReturn(Optional.of(jane));
+        when(repository.findById(3L)).thenReturn(Optional.of(john));
+        cache.findById(2L);
+        cache.findById(3L);
+
+        cache.invalidate(List.of("john.doe@example.com", "unknown@example.com"));
+        cache.findById(2L);
+        cache.findById(3L);
+
+        verify(repository, times(1)).findById(2L);
+        verify(repository, times(2)).findById(3L);
+    }
+
+    @Test
+    void doesNotCacheMisses() {
+        when(repository.findById(9L)).thenReturn(Optional.empty());
+
+        assertThat(cache.findById(9L)).isEmpty();
+        assertThat(cache.findById(9L)).isEmpty();
+
+        verify(repository, times(2)).findById(9L);
+    }
+}